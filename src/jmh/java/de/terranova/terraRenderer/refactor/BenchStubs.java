@@ -0,0 +1,58 @@
+package de.terranova.terraRenderer.refactor;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+
+/**
+ * Minimal Bukkit stand-ins for benchmarks (no server running).
+ *
+ * - World: identity equals/hashCode, fixed UID and name
+ * - Player: online, fixed UUID
+ * Every other method returns the default value of its return type.
+ */
+final class BenchStubs {
+
+    private BenchStubs() {}
+
+    static World world() {
+        UUID uid = UUID.randomUUID();
+        return (World) Proxy.newProxyInstance(World.class.getClassLoader(), new Class<?>[] { World.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> "BenchWorld";
+                    case "getUID" -> uid;
+                    case "getName" -> "bench";
+                    default -> defaultValue(method.getReturnType());
+                });
+    }
+
+    static Player player() {
+        UUID uuid = UUID.randomUUID();
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[] { Player.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> "BenchPlayer";
+                    case "getUniqueId" -> uuid;
+                    case "getName" -> "bench";
+                    case "isOnline" -> true;
+                    default -> defaultValue(method.getReturnType());
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        return 0d;
+    }
+}
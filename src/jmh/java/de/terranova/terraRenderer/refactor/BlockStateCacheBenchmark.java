@@ -0,0 +1,56 @@
+package de.terranova.terraRenderer.refactor;
+
+import net.minecraft.world.level.block.state.BlockState;
+import org.bukkit.Material;
+import org.bukkit.craftbukkit.block.data.CraftBlockData;
+import org.bukkit.craftbukkit.util.CraftMagicNumbers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Block state resolution per node update: a fresh CraftBlockData per call (old path)
+ * vs. the shared BlockStateCache. Run with the gc profiler to compare gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockStateCacheBenchmark {
+
+    @Param({"WHITE_CONCRETE", "REDSTONE_BLOCK", "OAK_STAIRS"})
+    public String materialName;
+
+    private Material material;
+
+    @Setup
+    public void setup() {
+        NmsBootstrap.init();
+        material = Material.valueOf(materialName);
+        BlockStateCache.get(material);
+    }
+
+    /** What material.createBlockData() + cast did on every spawn/update before. */
+    @Benchmark
+    public BlockState createBlockDataPerUpdate() {
+        CraftBlockData data = CraftBlockData.fromData(CraftMagicNumbers.getBlock(material).defaultBlockState());
+        return data.getState();
+    }
+
+    @Benchmark
+    public BlockState cachedBlockState() {
+        return BlockStateCache.get(material);
+    }
+}
@@ -0,0 +1,79 @@
+package de.terranova.terraRenderer.refactor;
+
+import de.terranova.terraRenderer.refactor.Anchor.Anchor3D;
+import de.terranova.terraRenderer.refactor.DisplayGroups.DisplayCube;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group geometry: anchoring, DisplayCube construction and the incremental cube update
+ * (edge math + marking the 12 nodes dirty). Packets are not involved, see DisplayPacketsBenchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DisplayGroupBenchmark {
+
+    private World world;
+    private Location from;
+    private Location to;
+    private Location toGrown;
+    private boolean grown;
+
+    private DisplayGroup anchoredGroup;
+    private DisplayCube cube;
+    private List<Player> viewers;
+
+    @Setup
+    public void setup() {
+        NmsBootstrap.init();
+        world = BenchStubs.world();
+        from = new Location(world, 100, 64, 100);
+        to = new Location(world, 110, 70, 118);
+        toGrown = new Location(world, 111, 70, 118);
+
+        anchoredGroup = new DisplayCube(from, to, Material.WHITE_CONCRETE, true, 0xAA11EE)
+                .anchor(Anchor3D.MIN_MIN_MIN, new Location(world, 200, 64, 200));
+
+        cube = new DisplayCube(from, to, Material.WHITE_CONCRETE, true, 0xAA11EE);
+        // Not spawned for anyone: update() stops before the scheduler, only geometry is measured
+        viewers = List.of();
+    }
+
+    @Benchmark
+    public DisplayGroup applyAnchorIfNeeded() {
+        anchoredGroup.applyAnchorIfNeeded();
+        return anchoredGroup;
+    }
+
+    @Benchmark
+    public DisplayCube constructCube() {
+        return new DisplayCube(from, to, Material.WHITE_CONCRETE, true, 0xAA11EE);
+    }
+
+    @Benchmark
+    public DisplayCube updateCube() {
+        // Alternate the size so every call really changes the edges
+        grown = !grown;
+        cube.update(from, grown ? toGrown : to, viewers, 10);
+        return cube;
+    }
+}
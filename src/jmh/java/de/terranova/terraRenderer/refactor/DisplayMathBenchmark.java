@@ -0,0 +1,55 @@
+package de.terranova.terraRenderer.refactor;
+
+import de.terranova.terraRenderer.refactor.Anchor.Anchor3D;
+import org.bukkit.Location;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pure math helpers used on every spawn/update: Euler <-> quaternion conversion,
+ * grid rounding and anchor offsets. No NMS needed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DisplayMathBenchmark {
+
+    private final Vector3f euler = new Vector3f(30f, 45f, 10f);
+    private final Quaternionf rotation = DisplayMath.eulerToQuaternion(new Vector3f(30f, 45f, 10f));
+    private final Location location = new Location(null, 1034.37, 71.9, -2291.61);
+    private final Vector3f size = new Vector3f(0.1f, 0.1f, 7.5f);
+
+    @Benchmark
+    public Quaternionf eulerToQuaternion() {
+        return DisplayMath.eulerToQuaternion(euler);
+    }
+
+    @Benchmark
+    public Vector3f quaternionToEulerYXZDeg() {
+        return DisplayMath.quaternionToEulerYXZDeg(rotation);
+    }
+
+    @Benchmark
+    public Location roundGrid() {
+        return DisplayMath.roundGrid(location);
+    }
+
+    @Benchmark
+    public Vector3f anchorOffsetForSize() {
+        return Anchor3D.MAX_MIN_MAX.offsetForSize(size);
+    }
+}
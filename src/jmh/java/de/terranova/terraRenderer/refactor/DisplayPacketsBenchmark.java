@@ -0,0 +1,151 @@
+package de.terranova.terraRenderer.refactor;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.core.RegistryAccess;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.network.RegistryFriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientGamePacketListener;
+import net.minecraft.network.protocol.game.ClientboundAddEntityPacket;
+import net.minecraft.network.protocol.game.ClientboundSetEntityDataPacket;
+import net.minecraft.network.protocol.game.ClientboundTeleportEntityPacket;
+import net.minecraft.network.protocol.game.GameProtocols;
+import net.minecraft.network.syncher.SynchedEntityData.DataValue;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.PositionMoveRotation;
+import net.minecraft.world.phys.Vec3;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packet creation through DisplayPackets (including queueing for one stub player) and
+ * serialization of the resulting packets with the game protocol codec, which is what
+ * DisplayPacketQueue does once per shared packet.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DisplayPacketsBenchmark {
+
+    private static final int ENTITY_ID = 1_000_000;
+
+    private Player player;
+    private List<Player> viewers;
+    private List<DataValue<?>> spawnData;
+    private List<DataValue<?>> updateData;
+
+    private StreamCodec<ByteBuf, Packet<? super ClientGamePacketListener>> codec;
+    private ByteBuf buffer;
+    private ClientboundAddEntityPacket addPacket;
+    private ClientboundSetEntityDataPacket dataPacket;
+    private ClientboundTeleportEntityPacket teleportPacket;
+
+    @Setup
+    public void setup() {
+        NmsBootstrap.init();
+        player = BenchStubs.player();
+        viewers = List.of(player);
+
+        Quaternionf rotation = new Quaternionf().rotationY(0.7f);
+        spawnData = List.of(
+                DisplayEntityData.translation(new Vector3f(-0.05f, -0.05f, -3.75f)),
+                DisplayEntityData.scale(new Vector3f(0.1f, 0.1f, 7.5f)),
+                DisplayEntityData.leftRotation(rotation),
+                DisplayEntityData.blockState(BlockStateCache.get(Material.WHITE_CONCRETE)),
+                DisplayEntityData.sharedFlags(DisplayEntityData.FLAG_GLOWING),
+                DisplayEntityData.glowColorOverride(0xFFAA11EE)
+        );
+        updateData = List.of(
+                DisplayEntityData.translation(new Vector3f(-0.05f, -0.05f, -4.25f)),
+                DisplayEntityData.scale(new Vector3f(0.1f, 0.1f, 8.5f)),
+                DisplayEntityData.transformationInterpolationDuration(10),
+                DisplayEntityData.interpolationDelay(0)
+        );
+
+        codec = GameProtocols.CLIENTBOUND_TEMPLATE
+                .bind(RegistryFriendlyByteBuf.decorator(RegistryAccess.fromRegistryOfRegistries(BuiltInRegistries.REGISTRY)))
+                .codec();
+        buffer = Unpooled.buffer(256);
+
+        addPacket = new ClientboundAddEntityPacket(ENTITY_ID, DisplayPackets.uuidFor(ENTITY_ID),
+                100.5, 64.5, 100.5, 0f, 0f, EntityType.BLOCK_DISPLAY, 0, Vec3.ZERO, 0d);
+        dataPacket = new ClientboundSetEntityDataPacket(ENTITY_ID, spawnData);
+        teleportPacket = new ClientboundTeleportEntityPacket(ENTITY_ID,
+                new PositionMoveRotation(new Vec3(101.5, 64.5, 100.5), Vec3.ZERO, 0f, 0f), Set.of(), false);
+    }
+
+    @TearDown
+    public void tearDown() {
+        DisplayPacketQueue.discard(player);
+        buffer.release();
+    }
+
+    // ------------------------------------------------------------------------
+    // Creation + queueing
+    // ------------------------------------------------------------------------
+
+    @Benchmark
+    public void spawn() {
+        DisplayPackets.spawn(ENTITY_ID, EntityType.BLOCK_DISPLAY, 100.5, 64.5, 100.5, spawnData, viewers);
+        DisplayPacketQueue.discard(player);
+    }
+
+    @Benchmark
+    public void updateWithTeleport() {
+        DisplayPackets.update(ENTITY_ID, true, 101.5, 64.5, 100.5, updateData, viewers);
+        DisplayPacketQueue.discard(player);
+    }
+
+    @Benchmark
+    public void updateDataOnly() {
+        DisplayPackets.update(ENTITY_ID, false, 100.5, 64.5, 100.5, updateData, viewers);
+        DisplayPacketQueue.discard(player);
+    }
+
+    // ------------------------------------------------------------------------
+    // Encoding
+    // ------------------------------------------------------------------------
+
+    @Benchmark
+    public int encodeAddEntity() {
+        return encode(addPacket);
+    }
+
+    @Benchmark
+    public int encodeEntityData() {
+        return encode(dataPacket);
+    }
+
+    @Benchmark
+    public int encodeTeleport() {
+        return encode(teleportPacket);
+    }
+
+    private int encode(Packet<? super ClientGamePacketListener> packet) {
+        buffer.clear();
+        codec.encode(buffer, packet);
+        return buffer.writerIndex();
+    }
+}
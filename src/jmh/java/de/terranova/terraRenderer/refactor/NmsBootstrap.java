@@ -0,0 +1,22 @@
+package de.terranova.terraRenderer.refactor;
+
+import net.minecraft.SharedConstants;
+import net.minecraft.server.Bootstrap;
+
+/**
+ * Boots the vanilla registries once per benchmark fork, so block states,
+ * entity types and packet codecs can be used without a running server.
+ */
+final class NmsBootstrap {
+
+    private static boolean done;
+
+    private NmsBootstrap() {}
+
+    static synchronized void init() {
+        if (done) return;
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+        done = true;
+    }
+}
@@ -0,0 +1,78 @@
+package de.terranova.terraRenderer.refactor;
+
+import org.bukkit.World;
+import org.joml.Quaternionf;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hover raycasts: building the tree over a wall of rotated buttons and casting rays at it.
+ * Raycast time should grow with log(nodes), build time with nodes * log(nodes).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeBvhBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int nodes;
+
+    private List<BlockDisplayNode> list;
+    private NodeBvh bvh;
+    private double[] targets;
+    private int next;
+
+    @Setup
+    public void setup() {
+        NmsBootstrap.init();
+        World world = BenchStubs.world();
+        Random random = new Random(42);
+
+        // Buttons on a wall at z = 0, 1.5 blocks apart, slightly rotated
+        int side = (int) Math.ceil(Math.sqrt(nodes));
+        list = new ArrayList<>(nodes);
+        for (int i = 0; i < nodes; i++) {
+            list.add(new BlockDisplayNode()
+                    .position(world, (i % side) * 1.5, 64 + (i / side) * 1.5, 0)
+                    .scale(1f, 1f, 0.2f)
+                    .rotation(new Quaternionf().rotateY((float) Math.toRadians(random.nextInt(30) - 15))));
+        }
+        bvh = new NodeBvh(list);
+
+        targets = new double[1024 * 2];
+        for (int i = 0; i < targets.length; i += 2) {
+            targets[i] = random.nextDouble() * side * 1.5;
+            targets[i + 1] = 64 + random.nextDouble() * side * 1.5;
+        }
+    }
+
+    @Benchmark
+    public NodeBvh build() {
+        return new NodeBvh(list);
+    }
+
+    @Benchmark
+    public NodeBvh.Hit raycast() {
+        int i = next;
+        next = (next + 2) & (targets.length - 1);
+        // Player 3 blocks in front of the wall, looking straight at it
+        return bvh.raycast(targets[i], targets[i + 1], -3, 0, 0, 1, 4.5, node -> true);
+    }
+}
@@ -0,0 +1,360 @@
+package de.terranova.terraRenderer;
+
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector2;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.regions.ConvexPolyhedralRegion;
+import com.sk89q.worldedit.regions.CylinderRegion;
+import com.sk89q.worldedit.regions.EllipsoidRegion;
+import com.sk89q.worldedit.regions.Polygonal2DRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.polyhedron.Triangle;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import org.bukkit.Location;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Line segments outlining non-cuboid WorldEdit regions (and WorldGuard regions, through
+ * the public primitives), for a DisplayOutline.
+ *
+ * - Polygonal2DRegion: polygon at the bottom and top, plus vertical edges at the points
+ * - CylinderRegion: ellipse at the bottom and top, plus 8 vertical edges
+ * - EllipsoidRegion: the three axis ellipses
+ * - ConvexPolyhedralRegion: hull edges (edges between coplanar triangles are left out)
+ *
+ * Curved shapes are tessellated by distance: the chord error may grow with the viewer's
+ * distance to the region (about 0.4 blocks at 100 blocks), so far or small regions get few
+ * segments and close, large ones many. Every outline stays within MAX_SEGMENTS entities;
+ * a 500-block cylinder is as expensive as a 20-block one. The shown detail only changes once
+ * the viewer is DETAIL_HYSTERESIS beyond the distance where the next level would apply, so
+ * standing on a boundary does not flip between two levels.
+ *
+ * build(...) returns the outline in parts (each ring, the vertical edges), meant for one
+ * DisplayOutline each: a part keeps its nodes when the detail changes, instead of nodes of
+ * one ring being reused for another.
+ *
+ * Block regions are inclusive, so outlines are drawn around the block centers (+0.5) with
+ * half a block of extra radius, and vertically from minY to maxY + 1.
+ */
+public final class RegionOutlines {
+
+    /** Maximum number of segments (entities) of one outline. */
+    public static final int MAX_SEGMENTS = 192;
+
+    /** Ring segments are multiples of this (keeps vertical edges on ring vertices). */
+    private static final int RING_STEP = 8;
+
+    /** Allowed chord error per block of viewer distance. */
+    private static final double ERROR_PER_BLOCK = 0.004;
+    private static final double MIN_ERROR = 0.03;
+    private static final double MAX_ERROR = 1.0;
+
+    /** Relative viewer distance change past a detail boundary before the detail changes. */
+    private static final double DETAIL_HYSTERESIS = 0.2;
+
+    private RegionOutlines() {}
+
+    public static boolean supports(Region region) {
+        return region instanceof Polygonal2DRegion
+                || region instanceof CylinderRegion
+                || region instanceof EllipsoidRegion
+                || region instanceof ConvexPolyhedralRegion;
+    }
+
+    // ------------------------------------------------------------------------
+    // Detail & fingerprint
+    // ------------------------------------------------------------------------
+
+    /**
+     * Segments per ring for a curved region seen from the viewer, or 0 for regions
+     * with straight edges only. Changes in steps of RING_STEP, so callers can compare it
+     * to decide whether to re-tessellate.
+     *
+     * @param shown segments per ring currently shown (0 if none); kept while the viewer
+     *              is within DETAIL_HYSTERESIS of the distances where it applies
+     */
+    public static int ringSegments(Region region, Location viewer, int shown) {
+        if (region instanceof CylinderRegion cylinder) {
+            Vector3 c = cylinder.getCenter();
+            Vector2 r = cylinder.getRadius();
+            double radius = Math.max(r.x(), r.z()) + 0.5;
+            double distance = distance(viewer, c.x() + 0.5, c.y(), c.z() + 0.5, radius);
+            // 2 rings + 8 vertical edges
+            return ringSegments(radius, distance, (MAX_SEGMENTS - RING_STEP) / 2, shown);
+        }
+        if (region instanceof EllipsoidRegion ellipsoid) {
+            Vector3 c = ellipsoid.getCenter();
+            Vector3 r = ellipsoid.getRadius();
+            double radius = Math.max(r.x(), Math.max(r.y(), r.z())) + 0.5;
+            double distance = distance(viewer, c.x() + 0.5, c.y() + 0.5, c.z() + 0.5, radius);
+            // 3 rings
+            return ringSegments(radius, distance, MAX_SEGMENTS / 3, shown);
+        }
+        return 0;
+    }
+
+    /**
+     * Segments needed for a ring of the given radius so the chord error stays below what
+     * is visible from the given distance, as a multiple of RING_STEP within [RING_STEP, max].
+     */
+    static int ringSegments(double radius, double distance, int max) {
+        double error = Math.clamp(distance * ERROR_PER_BLOCK, MIN_ERROR, MAX_ERROR);
+        int limit = Math.max(RING_STEP, max / RING_STEP * RING_STEP);
+        if (error >= radius) return RING_STEP;
+
+        // Chord error of n segments: r * (1 - cos(PI / n))
+        double n = Math.PI / Math.acos(1 - error / radius);
+        int segments = (int) Math.ceil(n / RING_STEP) * RING_STEP;
+        return Math.clamp(segments, RING_STEP, limit);
+    }
+
+    /** As above, but keeps shown while it fits a slightly closer or farther viewer. */
+    private static int ringSegments(double radius, double distance, int max, int shown) {
+        int segments = ringSegments(radius, distance, max);
+        if (shown == 0 || segments == shown) return segments;
+
+        // Closer viewers need more segments
+        int finer = ringSegments(radius, distance / (1 + DETAIL_HYSTERESIS), max);
+        int coarser = ringSegments(radius, distance * (1 + DETAIL_HYSTERESIS), max);
+        return shown >= coarser && shown <= finer ? shown : segments;
+    }
+
+    /** Distance from the viewer to a sphere around the given center, at least 1. */
+    private static double distance(Location viewer, double x, double y, double z, double radius) {
+        if (viewer == null) return radius;
+        double dx = viewer.getX() - x;
+        double dy = viewer.getY() - y;
+        double dz = viewer.getZ() - z;
+        return Math.max(1, Math.sqrt(dx * dx + dy * dy + dz * dz) - radius);
+    }
+
+    /** Hash of the region's shape; changes whenever its outline would change. */
+    public static long fingerprint(Region region) {
+        long hash = region.getClass().getName().hashCode();
+        hash = 31 * hash + region.getMinimumPoint().hashCode();
+        hash = 31 * hash + region.getMaximumPoint().hashCode();
+
+        if (region instanceof Polygonal2DRegion polygon) {
+            hash = 31 * hash + polygon.getPoints().hashCode();
+        } else if (region instanceof CylinderRegion cylinder) {
+            hash = 31 * hash + cylinder.getCenter().hashCode();
+            hash = 31 * hash + cylinder.getRadius().hashCode();
+        } else if (region instanceof EllipsoidRegion ellipsoid) {
+            hash = 31 * hash + ellipsoid.getCenter().hashCode();
+            hash = 31 * hash + ellipsoid.getRadius().hashCode();
+        } else if (region instanceof ConvexPolyhedralRegion convex) {
+            hash = 31 * hash + convex.getVertices().hashCode();
+        }
+        return hash;
+    }
+
+    // ------------------------------------------------------------------------
+    // Building
+    // ------------------------------------------------------------------------
+
+    /**
+     * Outline of the region in parts, 6 coordinates per segment: one part per ring plus one
+     * for the vertical edges of curved regions, a single part otherwise. A region type
+     * always yields the same parts in the same order.
+     *
+     * @param ringSegments segments per ring for curved regions, see ringSegments(...)
+     */
+    public static List<DoubleArrayList> build(Region region, int ringSegments) {
+        List<DoubleArrayList> parts = new ArrayList<>(3);
+        if (region instanceof Polygonal2DRegion polygon) {
+            polygon(polygon.getPoints(),
+                    polygon.getMinimumPoint().y(),
+                    polygon.getMaximumPoint().y() + 1,
+                    MAX_SEGMENTS, part(parts, MAX_SEGMENTS));
+        } else if (region instanceof CylinderRegion cylinder) {
+            cylinder(cylinder, ringSegments, parts);
+        } else if (region instanceof EllipsoidRegion ellipsoid) {
+            ellipsoid(ellipsoid, ringSegments, parts);
+        } else if (region instanceof ConvexPolyhedralRegion convex) {
+            convex(convex, MAX_SEGMENTS, part(parts, MAX_SEGMENTS));
+        }
+        return parts;
+    }
+
+    private static DoubleArrayList part(List<DoubleArrayList> parts, int segments) {
+        DoubleArrayList part = new DoubleArrayList(segments * 6);
+        parts.add(part);
+        return part;
+    }
+
+    /**
+     * Prism outline of a polygon between minY and maxY: both rings plus vertical edges.
+     * Polygons with too many points for the budget are simplified by skipping points,
+     * vertical edges are thinned out before that.
+     */
+    public static void polygon(List<BlockVector2> points, double minY, double maxY, int budget, DoubleArrayList out) {
+        int count = points.size();
+        if (count < 2) return;
+
+        // Both rings must fit: take every stride-th point
+        int stride = Math.max(1, (2 * count + budget - 1) / budget);
+        int ringPoints = (count + stride - 1) / stride;
+
+        // Whatever is left of the budget goes to vertical edges
+        int verticals = Math.min(ringPoints, Math.max(0, budget - 2 * ringPoints));
+        int verticalStride = verticals == 0 ? 0 : (ringPoints + verticals - 1) / verticals;
+
+        for (int i = 0; i < ringPoints; i++) {
+            BlockVector2 a = points.get(i * stride);
+            BlockVector2 b = points.get(Math.min(count, (i + 1) * stride) % count);
+            double ax = a.x() + 0.5, az = a.z() + 0.5;
+            double bx = b.x() + 0.5, bz = b.z() + 0.5;
+
+            segment(out, ax, minY, az, bx, minY, bz);
+            segment(out, ax, maxY, az, bx, maxY, bz);
+            if (verticalStride > 0 && i % verticalStride == 0) {
+                segment(out, ax, minY, az, ax, maxY, az);
+            }
+        }
+    }
+
+    private static void cylinder(CylinderRegion cylinder, int segments, List<DoubleArrayList> parts) {
+        Vector3 c = cylinder.getCenter();
+        Vector2 r = cylinder.getRadius();
+        double cx = c.x() + 0.5, cz = c.z() + 0.5;
+        double rx = r.x() + 0.5, rz = r.z() + 0.5;
+        double minY = cylinder.getMinimumY();
+        double maxY = cylinder.getMaximumY() + 1;
+
+        ellipse(part(parts, segments), cx, minY, cz, rx, 0, 0, 0, 0, rz, segments);
+        ellipse(part(parts, segments), cx, maxY, cz, rx, 0, 0, 0, 0, rz, segments);
+
+        DoubleArrayList out = part(parts, RING_STEP);
+        for (int i = 0; i < RING_STEP; i++) {
+            double angle = 2 * Math.PI * i / RING_STEP;
+            double x = cx + rx * Math.cos(angle);
+            double z = cz + rz * Math.sin(angle);
+            segment(out, x, minY, z, x, maxY, z);
+        }
+    }
+
+    private static void ellipsoid(EllipsoidRegion ellipsoid, int segments, List<DoubleArrayList> parts) {
+        Vector3 c = ellipsoid.getCenter();
+        Vector3 r = ellipsoid.getRadius();
+        double cx = c.x() + 0.5, cy = c.y() + 0.5, cz = c.z() + 0.5;
+        double rx = r.x() + 0.5, ry = r.y() + 0.5, rz = r.z() + 0.5;
+
+        ellipse(part(parts, segments), cx, cy, cz, rx, 0, 0, 0, 0, rz, segments); // horizontal
+        ellipse(part(parts, segments), cx, cy, cz, rx, 0, 0, 0, ry, 0, segments); // x/y plane
+        ellipse(part(parts, segments), cx, cy, cz, 0, 0, rz, 0, ry, 0, segments); // z/y plane
+    }
+
+    /**
+     * Edges of the convex hull. Edges shared by two coplanar triangles are skipped (they
+     * only split a face); if the budget is exceeded, the longest edges are kept.
+     */
+    private static void convex(ConvexPolyhedralRegion convex, int budget, DoubleArrayList out) {
+        Map<Edge, Vector3> normals = new LinkedHashMap<>();
+        Set<Edge> flat = new HashSet<>();
+
+        for (Triangle triangle : convex.getTriangles()) {
+            Vector3 a = triangle.getVertex(0);
+            Vector3 b = triangle.getVertex(1);
+            Vector3 c = triangle.getVertex(2);
+            Vector3 normal = b.subtract(a).cross(c.subtract(a)).normalize();
+
+            for (Edge edge : new Edge[]{Edge.of(a, b), Edge.of(b, c), Edge.of(c, a)}) {
+                Vector3 other = normals.putIfAbsent(edge, normal);
+                if (other != null && other.dot(normal) > 0.9999) {
+                    flat.add(edge);
+                }
+            }
+        }
+
+        List<Edge> edges = new ArrayList<>(normals.keySet());
+        edges.removeAll(flat);
+        if (edges.size() > budget) {
+            edges.sort((e1, e2) -> Double.compare(e2.lengthSq(), e1.lengthSq()));
+            edges = edges.subList(0, budget);
+        }
+
+        for (Edge edge : edges) {
+            segment(out,
+                    edge.a().x() + 0.5, edge.a().y() + 0.5, edge.a().z() + 0.5,
+                    edge.b().x() + 0.5, edge.b().y() + 0.5, edge.b().z() + 0.5);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Primitives
+    // ------------------------------------------------------------------------
+
+    /** The 12 edges of an axis-aligned box. */
+    public static void box(DoubleArrayList out,
+                           double minX, double minY, double minZ,
+                           double maxX, double maxY, double maxZ) {
+        for (double y : new double[]{minY, maxY}) {
+            segment(out, minX, y, minZ, maxX, y, minZ);
+            segment(out, maxX, y, minZ, maxX, y, maxZ);
+            segment(out, maxX, y, maxZ, minX, y, maxZ);
+            segment(out, minX, y, maxZ, minX, y, minZ);
+        }
+        segment(out, minX, minY, minZ, minX, maxY, minZ);
+        segment(out, maxX, minY, minZ, maxX, maxY, minZ);
+        segment(out, maxX, minY, maxZ, maxX, maxY, maxZ);
+        segment(out, minX, minY, maxZ, minX, maxY, maxZ);
+    }
+
+    /** Closed ring center + u * cos(t) + v * sin(t) as n segments. */
+    public static void ellipse(DoubleArrayList out,
+                               double cx, double cy, double cz,
+                               double ux, double uy, double uz,
+                               double vx, double vy, double vz,
+                               int n) {
+        double px = cx + ux, py = cy + uy, pz = cz + uz;
+        for (int i = 1; i <= n; i++) {
+            double angle = 2 * Math.PI * i / n;
+            double cos = Math.cos(angle), sin = Math.sin(angle);
+            double x = cx + ux * cos + vx * sin;
+            double y = cy + uy * cos + vy * sin;
+            double z = cz + uz * cos + vz * sin;
+            segment(out, px, py, pz, x, y, z);
+            px = x;
+            py = y;
+            pz = z;
+        }
+    }
+
+    public static void segment(DoubleArrayList out,
+                               double x1, double y1, double z1,
+                               double x2, double y2, double z2) {
+        out.add(x1);
+        out.add(y1);
+        out.add(z1);
+        out.add(x2);
+        out.add(y2);
+        out.add(z2);
+    }
+
+    /** Undirected hull edge between two block vertices. */
+    private record Edge(BlockVector3 a, BlockVector3 b) {
+
+        static Edge of(Vector3 v1, Vector3 v2) {
+            BlockVector3 a = v1.toBlockPoint();
+            BlockVector3 b = v2.toBlockPoint();
+            return compare(a, b) <= 0 ? new Edge(a, b) : new Edge(b, a);
+        }
+
+        double lengthSq() {
+            return a.distanceSq(b);
+        }
+
+        private static int compare(BlockVector3 a, BlockVector3 b) {
+            if (a.x() != b.x()) return Integer.compare(a.x(), b.x());
+            if (a.y() != b.y()) return Integer.compare(a.y(), b.y());
+            return Integer.compare(a.z(), b.z());
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package de.terranova.terraRenderer;
 
+import de.terranova.terraRenderer.refactor.DisplayPacketQueue;
+import de.terranova.terraRenderer.refactor.DisplayRegistry;
+import de.terranova.terraRenderer.refactor.RenderScheduler;
 import de.terranova.terraRenderer.refactor.Listener.BreezeToolListener;
 import de.terranova.terraRenderer.refactor.Listener.DisplayPacketListener;
+import de.terranova.terraRenderer.refactor.Listener.DisplayTickListener;
 import org.bukkit.Bukkit;
 import org.bukkit.command.PluginCommand;
 import org.bukkit.plugin.java.JavaPlugin;
@@ -11,8 +15,13 @@ public final class TerraRenderer extends JavaPlugin {
     @Override
     public void onEnable() {
         getLogger().info("TerraRenderer enabled.");
-        Bukkit.getPluginManager().registerEvents(new WorldeditEventListener(this), this);
+        // WorldEdit selection preview, only with WorldEdit installed (soft dependency)
+        if (Bukkit.getPluginManager().getPlugin("WorldEdit") != null) {
+            Bukkit.getPluginManager().registerEvents(new WorldeditEventListener(this), this);
+        }
         getServer().getPluginManager().registerEvents(new DisplayPacketListener(), this);
+        // flushes dirty nodes and queued display packets once per tick
+        getServer().getPluginManager().registerEvents(new DisplayTickListener(), this);
         // /debug -> DebugCommand
         Bukkit.getPluginManager().registerEvents(new BreezeToolListener(this), this);
         PluginCommand debug = getCommand("debug");
@@ -21,11 +30,30 @@ public final class TerraRenderer extends JavaPlugin {
         } else {
             getLogger().severe("Command 'debug' not found in plugin.yml!");
         }
+        // WorldGuard region overlay, toggled with /terrarenderer regions
+        WorldGuardOverlay regionOverlay = null;
+        if (Bukkit.getPluginManager().getPlugin("WorldGuard") != null) {
+            regionOverlay = new WorldGuardOverlay();
+            Bukkit.getPluginManager().registerEvents(regionOverlay, this);
+        }
+        // /terrarenderer stats -> TerraRendererCommand
+        PluginCommand terrarenderer = getCommand("terrarenderer");
+        if (terrarenderer != null) {
+            TerraRendererCommand executor = new TerraRendererCommand(regionOverlay);
+            terrarenderer.setExecutor(executor);
+            terrarenderer.setTabCompleter(executor);
+        } else {
+            getLogger().severe("Command 'terrarenderer' not found in plugin.yml!");
+        }
 
     }
 
     @Override
     public void onDisable() {
+        RenderScheduler.flush();
+        // Remove every display from every client, then send it out
+        DisplayRegistry.shutdown();
+        DisplayPacketQueue.flush();
         getLogger().info("TerraRenderer disabled.");
     }
 }
\ No newline at end of file
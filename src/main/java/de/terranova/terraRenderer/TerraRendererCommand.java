@@ -0,0 +1,201 @@
+package de.terranova.terraRenderer;
+
+import de.terranova.terraRenderer.refactor.ClickQueue;
+import de.terranova.terraRenderer.refactor.DisplayPacketQueue;
+import de.terranova.terraRenderer.refactor.DisplayRegistry;
+import de.terranova.terraRenderer.refactor.DisplayRegistry.LeakReport;
+import de.terranova.terraRenderer.refactor.HitboxTracker;
+import de.terranova.terraRenderer.refactor.RenderMetrics;
+import de.terranova.terraRenderer.refactor.RenderMetrics.PacketType;
+import de.terranova.terraRenderer.refactor.RenderMetrics.PlayerCounters;
+import de.terranova.terraRenderer.refactor.RenderMetrics.Snapshot;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabExecutor;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * /terrarenderer stats [player]
+ * /terrarenderer leaks [purge]
+ * /terrarenderer regions
+ *
+ * Shows the render metrics of the last second (sum of the last 20 ticks), or the
+ * counters of one player, and the DisplayRegistry leak report. regions toggles the
+ * WorldGuard region overlay for the sender.
+ *
+ * The command itself needs terrarenderer.stats (read only); leaks purge changes registry
+ * state and needs PURGE_PERMISSION, regions spawns entities and needs REGIONS_PERMISSION.
+ */
+public class TerraRendererCommand implements TabExecutor {
+
+    public static final String PURGE_PERMISSION = "terrarenderer.purge";
+    public static final String REGIONS_PERMISSION = "terrarenderer.regions";
+
+    /** Null if WorldGuard is not installed. */
+    private final WorldGuardOverlay regionOverlay;
+
+    public TerraRendererCommand(WorldGuardOverlay regionOverlay) {
+        this.regionOverlay = regionOverlay;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length > 0 && args[0].equalsIgnoreCase("regions")) {
+            if (!checkPermission(sender, REGIONS_PERMISSION)) return true;
+            toggleRegions(sender);
+            return true;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("leaks")) {
+            boolean purge = args.length >= 2 && args[1].equalsIgnoreCase("purge");
+            if (purge && !checkPermission(sender, PURGE_PERMISSION)) return true;
+            sendLeakReport(sender, purge ? DisplayRegistry.purge() : DisplayRegistry.report(), purge);
+            return true;
+        }
+        if (args.length == 0 || !args[0].equalsIgnoreCase("stats")) {
+            sender.sendMessage(ChatColor.RED + "Usage: /" + label + " stats [player] | leaks [purge] | regions");
+            return true;
+        }
+
+        if (args.length >= 2) {
+            Player target = Bukkit.getPlayerExact(args[1]);
+            if (target == null) {
+                sender.sendMessage(ChatColor.RED + "Player not found: " + args[1]);
+                return true;
+            }
+            sendPlayerStats(sender, target);
+            return true;
+        }
+
+        sendStats(sender);
+        return true;
+    }
+
+    private static boolean checkPermission(CommandSender sender, String permission) {
+        if (sender.hasPermission(permission)) return true;
+        sender.sendMessage(ChatColor.RED + "You don't have permission to use this command.");
+        return false;
+    }
+
+    private void toggleRegions(CommandSender sender) {
+        if (!(sender instanceof Player player)) {
+            sender.sendMessage(ChatColor.RED + "Only players can use the region overlay.");
+            return;
+        }
+        if (regionOverlay == null) {
+            sender.sendMessage(ChatColor.RED + "WorldGuard is not installed.");
+            return;
+        }
+        boolean enabled = regionOverlay.toggle(player);
+        sender.sendMessage(ChatColor.GRAY + "Region overlay " + (enabled ? ChatColor.GREEN + "enabled" : ChatColor.RED + "disabled"));
+    }
+
+    private void sendStats(CommandSender sender) {
+        Snapshot second = RenderMetrics.lastSecond();
+        if (second == null) {
+            sender.sendMessage(ChatColor.GRAY + "No ticks recorded yet.");
+            return;
+        }
+        int ticks = RenderMetrics.getHistorySize();
+
+        sender.sendMessage(ChatColor.GOLD + "TerraRenderer – last " + ticks + " ticks");
+        sender.sendMessage(line("Packets", second.packetCount() + " (" + perTick(second.packetCount(), ticks) + "/tick)"));
+        sender.sendMessage(line("  add / data / teleport / remove",
+                second.packets(PacketType.ADD_ENTITY) + " / "
+                        + second.packets(PacketType.ENTITY_DATA) + " / "
+                        + second.packets(PacketType.TELEPORT) + " / "
+                        + second.packets(PacketType.REMOVE_ENTITIES)));
+        sender.sendMessage(line("Bytes (est.)", formatBytes(second.bytes()) + " (" + formatBytes(second.bytes() / ticks) + "/tick)"));
+        sender.sendMessage(line("Live nodes / hitboxes", second.liveNodes() + " / " + second.liveHitboxes()));
+        sender.sendMessage(line("update() calls / flushes", second.updateCalls() + " / " + second.flushes()));
+        sender.sendMessage(line("Diff time", formatMillis(second.applySettingsNanos()) + " (" + formatMillis(second.applySettingsNanos() / ticks) + "/tick)"));
+        sender.sendMessage(line("Packet time", formatMillis(second.packetNanos()) + " (" + formatMillis(second.packetNanos() / ticks) + "/tick)"));
+        sender.sendMessage(line("Deferred ops", second.deferredOps() + " (budget "
+                + DisplayPacketQueue.getMaxPacketsPerTick() + " packets / "
+                + formatBytes(DisplayPacketQueue.getMaxBytesPerTick()) + " per player and tick)"));
+        sender.sendMessage(line("Clicks dropped / merged", ClickQueue.getDroppedClicks() + " / " + ClickQueue.getMergedClicks()));
+        sender.sendMessage(line("Total", RenderMetrics.getTotalPackets() + " packets, "
+                + formatBytes(RenderMetrics.getTotalBytes()) + " in " + RenderMetrics.getTicks() + " ticks"));
+    }
+
+    private void sendPlayerStats(CommandSender sender, Player target) {
+        PlayerCounters counters = RenderMetrics.player(target);
+        sender.sendMessage(ChatColor.GOLD + "TerraRenderer – " + target.getName());
+        if (counters == null) {
+            sender.sendMessage(ChatColor.GRAY + "Nothing sent to this player yet.");
+        } else {
+            sender.sendMessage(line("Last active tick", counters.lastTickPackets() + " packets, " + formatBytes(counters.lastTickBytes())));
+            sender.sendMessage(line("  add / data / teleport / remove",
+                    counters.lastTickPackets(PacketType.ADD_ENTITY) + " / "
+                            + counters.lastTickPackets(PacketType.ENTITY_DATA) + " / "
+                            + counters.lastTickPackets(PacketType.TELEPORT) + " / "
+                            + counters.lastTickPackets(PacketType.REMOVE_ENTITIES)));
+            sender.sendMessage(line("Peak tick", counters.maxTickPackets() + " packets, " + formatBytes(counters.maxTickBytes())));
+            sender.sendMessage(line("Total", counters.totalPackets() + " packets, " + formatBytes(counters.totalBytes())));
+            sender.sendMessage(line("  add / data / teleport / remove",
+                    counters.totalPackets(PacketType.ADD_ENTITY) + " / "
+                            + counters.totalPackets(PacketType.ENTITY_DATA) + " / "
+                            + counters.totalPackets(PacketType.TELEPORT) + " / "
+                            + counters.totalPackets(PacketType.REMOVE_ENTITIES)));
+        }
+        sender.sendMessage(line("Pending ops", String.valueOf(DisplayPacketQueue.getPending(target))));
+        sender.sendMessage(line("Entities on client", String.valueOf(DisplayRegistry.entityCount(target))));
+        sender.sendMessage(line("Hitboxes within reach", String.valueOf(HitboxTracker.hitboxCount(target))));
+    }
+
+    private void sendLeakReport(CommandSender sender, LeakReport report, boolean purged) {
+        sender.sendMessage(ChatColor.GOLD + "TerraRenderer – registry" + (purged ? " (before purge)" : ""));
+        sender.sendMessage(line("Live nodes / hitboxes", report.liveNodes() + " / " + report.hitboxes()));
+        sender.sendMessage(line("Tracked viewers / entity ids", report.viewers() + " / " + report.trackedIds()));
+
+        ChatColor state = report.hasLeaks() ? ChatColor.RED : ChatColor.GREEN;
+        sender.sendMessage(line("Offline viewers (ids)", state + String.valueOf(report.offlineViewers())
+                + " (" + report.offlineIds() + ")"));
+        sender.sendMessage(line("Orphan hitboxes", state + String.valueOf(report.orphanHitboxes())));
+        sender.sendMessage(line("Nodes without online viewer", state + String.valueOf(report.nodesWithoutViewers())));
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        List<String> out = new ArrayList<>();
+        if (args.length == 1) {
+            String prefix = args[0].toLowerCase(Locale.ROOT);
+            if ("stats".startsWith(prefix)) out.add("stats");
+            if ("leaks".startsWith(prefix)) out.add("leaks");
+            if ("regions".startsWith(prefix) && sender.hasPermission(REGIONS_PERMISSION)) out.add("regions");
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("leaks")) {
+            if ("purge".startsWith(args[1].toLowerCase(Locale.ROOT)) && sender.hasPermission(PURGE_PERMISSION)) {
+                out.add("purge");
+            }
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("stats")) {
+            String prefix = args[1].toLowerCase(Locale.ROOT);
+            for (Player p : Bukkit.getOnlinePlayers()) {
+                if (p.getName().toLowerCase(Locale.ROOT).startsWith(prefix)) out.add(p.getName());
+            }
+        }
+        return out;
+    }
+
+    private static String line(String key, String value) {
+        return ChatColor.GRAY + key + ": " + ChatColor.WHITE + value;
+    }
+
+    private static String perTick(long value, int ticks) {
+        return String.format(Locale.ROOT, "%.1f", value / (double) ticks);
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format(Locale.ROOT, "%.1f KiB", bytes / 1024d);
+        return String.format(Locale.ROOT, "%.2f MiB", bytes / (1024d * 1024d));
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f ms", nanos / 1_000_000d);
+    }
+}
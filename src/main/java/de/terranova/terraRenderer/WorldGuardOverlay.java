@@ -0,0 +1,300 @@
+package de.terranova.terraRenderer;
+
+import com.destroystokyo.paper.event.server.ServerTickStartEvent;
+import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.WorldGuard;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import com.sk89q.worldguard.protection.regions.RegionContainer;
+import de.terranova.terraRenderer.refactor.BlockDisplayNode;
+import de.terranova.terraRenderer.refactor.DisplayGroups.DisplayOutline;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Overlay mode: shows the borders of the WorldGuard regions around a player
+ * (toggled with /terrarenderer regions).
+ *
+ * - Nearby regions come from the region manager's spatial index (getApplicableRegions with
+ *   a query box of VIEW_RADIUS), never from a scan over all regions of the world
+ * - The query is repeated when the player moved REQUERY_DISTANCE blocks, and every
+ *   REFRESH_TICKS so region edits show up
+ * - Outline segments are cached per region and shared by all players. WorldGuard fires no
+ *   events for region edits, so a cache entry is rebuilt when the region's fingerprint
+ *   (type, bounds, points) changes; entries of deleted regions are dropped every
+ *   CACHE_CLEANUP_TICKS
+ * - Every region is one DisplayOutline per player: regions entering/leaving the radius
+ *   spawn/despawn only their own lines, a changed region moves its lines
+ *
+ * At most MAX_REGIONS regions (nearest first) and MAX_SEGMENTS_PER_PLAYER lines are
+ * shown per player.
+ */
+public class WorldGuardOverlay implements Listener {
+
+    /** Blocks around the player in which regions are shown. */
+    private static final int VIEW_RADIUS = 48;
+    private static final double REQUERY_DISTANCE = 8;
+    private static final int REFRESH_TICKS = 100;
+    private static final int CACHE_CLEANUP_TICKS = 20 * 60;
+
+    private static final int MAX_REGIONS = 32;
+    private static final int MAX_SEGMENTS_PER_PLAYER = 1024;
+
+    private static final int INTERPOLATION_TICKS = 6;
+    private static final Material LINE_MATERIAL = Material.WHITE_CONCRETE;
+    private static final int LINE_GLOW = 0xFFAA00;
+    private static final float LINE_THICKNESS = 0.08f;
+
+    private final RegionContainer container;
+
+    /** World -> region id -> cached outline. */
+    private final Map<World, Map<String, CachedOutline>> cache = new HashMap<>();
+    /** Player -> overlay state (only players with the overlay enabled). */
+    private final Map<UUID, ViewerState> viewers = new HashMap<>();
+
+    private long tick;
+
+    public WorldGuardOverlay() {
+        this.container = WorldGuard.getInstance().getPlatform().getRegionContainer();
+    }
+
+    /** Segments of one region and the fingerprint they were built for. */
+    private record CachedOutline(long fingerprint, DoubleArrayList segments) {}
+
+    private static final class ViewerState {
+        /** Region id -> shown outline / fingerprint it was built for. */
+        final Map<String, DisplayOutline> outlines = new HashMap<>();
+        final Map<String, Long> fingerprints = new HashMap<>();
+        World world;
+        double queryX, queryY, queryZ;
+        long queryTick;
+    }
+
+    // ------------------------------------------------------------------------
+    // Toggle
+    // ------------------------------------------------------------------------
+
+    /** Toggle the overlay for a player. @return true if it is now enabled */
+    public boolean toggle(Player player) {
+        if (viewers.containsKey(player.getUniqueId())) {
+            disable(player);
+            return false;
+        }
+        viewers.put(player.getUniqueId(), new ViewerState());
+        refresh(player, viewers.get(player.getUniqueId()));
+        return true;
+    }
+
+    public void disable(Player player) {
+        ViewerState state = viewers.remove(player.getUniqueId());
+        if (state == null) return;
+
+        List<BlockDisplayNode> nodes = new ArrayList<>();
+        for (DisplayOutline outline : state.outlines.values()) {
+            nodes.addAll(outline.getNodes());
+        }
+        BlockDisplayNode.despawnAll(nodes, List.of(player));
+    }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent event) {
+        disable(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onWorldChange(PlayerChangedWorldEvent event) {
+        ViewerState state = viewers.get(event.getPlayer().getUniqueId());
+        if (state == null) return;
+
+        disable(event.getPlayer());
+        viewers.put(event.getPlayer().getUniqueId(), new ViewerState());
+    }
+
+    // ------------------------------------------------------------------------
+    // Tick
+    // ------------------------------------------------------------------------
+
+    @EventHandler
+    public void onTickStart(ServerTickStartEvent event) {
+        tick++;
+        if (tick % CACHE_CLEANUP_TICKS == 0) {
+            cleanupCache();
+        }
+        if (viewers.isEmpty()) return;
+
+        for (Map.Entry<UUID, ViewerState> entry : viewers.entrySet()) {
+            Player player = Bukkit.getPlayer(entry.getKey());
+            if (player == null) continue;
+
+            ViewerState state = entry.getValue();
+            Location loc = player.getLocation();
+            boolean moved = state.world != loc.getWorld()
+                    || distanceSq(state, loc) > REQUERY_DISTANCE * REQUERY_DISTANCE;
+            if (moved || tick - state.queryTick >= REFRESH_TICKS) {
+                refresh(player, state);
+            }
+        }
+    }
+
+    private static double distanceSq(ViewerState state, Location loc) {
+        double dx = state.queryX - loc.getX();
+        double dy = state.queryY - loc.getY();
+        double dz = state.queryZ - loc.getZ();
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Query the regions around the player and bring the shown outlines in line:
+     * spawn new ones, move changed ones, despawn the ones out of range.
+     */
+    private void refresh(Player player, ViewerState state) {
+        Location loc = player.getLocation();
+        World world = loc.getWorld();
+        state.world = world;
+        state.queryX = loc.getX();
+        state.queryY = loc.getY();
+        state.queryZ = loc.getZ();
+        state.queryTick = tick;
+
+        List<ProtectedRegion> nearby = query(world, loc);
+        Map<String, CachedOutline> worldCache = cache.computeIfAbsent(world, w -> new HashMap<>());
+        List<Player> viewer = List.of(player);
+
+        Map<String, DisplayOutline> previous = new HashMap<>(state.outlines);
+        int segmentBudget = MAX_SEGMENTS_PER_PLAYER;
+
+        for (ProtectedRegion region : nearby) {
+            String id = region.getId();
+            CachedOutline outline = outline(worldCache, region);
+            int segments = outline.segments().size() / 6;
+            if (segments == 0 || segments > segmentBudget) continue;
+            segmentBudget -= segments;
+
+            DisplayOutline shown = previous.remove(id);
+            Long shownFingerprint = state.fingerprints.get(id);
+            if (shown != null && shownFingerprint != null && shownFingerprint == outline.fingerprint()) {
+                continue; // unchanged
+            }
+
+            boolean created = shown == null;
+            if (created) {
+                shown = new DisplayOutline(LINE_THICKNESS, LINE_MATERIAL, true, LINE_GLOW);
+                state.outlines.put(id, shown);
+            }
+            shown.update(world, outline.segments(), viewer, created ? 0 : INTERPOLATION_TICKS);
+            state.fingerprints.put(id, outline.fingerprint());
+        }
+
+        // Out of range, over budget or deleted: one remove packet for all of them
+        List<BlockDisplayNode> leaving = new ArrayList<>();
+        for (Map.Entry<String, DisplayOutline> entry : previous.entrySet()) {
+            leaving.addAll(entry.getValue().getNodes());
+            state.outlines.remove(entry.getKey());
+            state.fingerprints.remove(entry.getKey());
+        }
+        BlockDisplayNode.despawnAll(leaving, viewer);
+    }
+
+    /** Regions intersecting the view box around loc, nearest first, at most MAX_REGIONS. */
+    private List<ProtectedRegion> query(World world, Location loc) {
+        RegionManager manager = container.get(BukkitAdapter.adapt(world));
+        if (manager == null) return List.of();
+
+        int x = loc.getBlockX(), y = loc.getBlockY(), z = loc.getBlockZ();
+        ProtectedCuboidRegion box = new ProtectedCuboidRegion("__terrarenderer_query__", true,
+                BlockVector3.at(x - VIEW_RADIUS, y - VIEW_RADIUS, z - VIEW_RADIUS),
+                BlockVector3.at(x + VIEW_RADIUS, y + VIEW_RADIUS, z + VIEW_RADIUS));
+
+        List<ProtectedRegion> regions = new ArrayList<>();
+        for (ProtectedRegion region : manager.getApplicableRegions(box)) {
+            if (region instanceof ProtectedCuboidRegion || region instanceof ProtectedPolygonalRegion) {
+                regions.add(region);
+            }
+        }
+
+        if (regions.size() > MAX_REGIONS) {
+            BlockVector3 at = BlockVector3.at(x, y, z);
+            regions.sort(Comparator.comparingDouble(r -> boxDistanceSq(r, at)));
+            regions = regions.subList(0, MAX_REGIONS);
+        }
+        return regions;
+    }
+
+    private static double boxDistanceSq(ProtectedRegion region, BlockVector3 at) {
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        double dx = Math.max(0, Math.max(min.x() - at.x(), at.x() - max.x() - 1));
+        double dy = Math.max(0, Math.max(min.y() - at.y(), at.y() - max.y() - 1));
+        double dz = Math.max(0, Math.max(min.z() - at.z(), at.z() - max.z() - 1));
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    // ------------------------------------------------------------------------
+    // Outline cache
+    // ------------------------------------------------------------------------
+
+    /** Cached outline of the region, rebuilt if the region changed since. */
+    private static CachedOutline outline(Map<String, CachedOutline> worldCache, ProtectedRegion region) {
+        long fingerprint = fingerprint(region);
+        CachedOutline cached = worldCache.get(region.getId());
+        if (cached != null && cached.fingerprint() == fingerprint) return cached;
+
+        DoubleArrayList segments = new DoubleArrayList();
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        if (region instanceof ProtectedCuboidRegion) {
+            RegionOutlines.box(segments, min.x(), min.y(), min.z(), max.x() + 1, max.y() + 1, max.z() + 1);
+        } else {
+            RegionOutlines.polygon(region.getPoints(), min.y(), max.y() + 1, RegionOutlines.MAX_SEGMENTS, segments);
+        }
+
+        cached = new CachedOutline(fingerprint, segments);
+        worldCache.put(region.getId(), cached);
+        return cached;
+    }
+
+    private static long fingerprint(ProtectedRegion region) {
+        long hash = region.getType().ordinal();
+        hash = 31 * hash + region.getMinimumPoint().hashCode();
+        hash = 31 * hash + region.getMaximumPoint().hashCode();
+        if (region instanceof ProtectedPolygonalRegion) {
+            List<BlockVector2> points = region.getPoints();
+            hash = 31 * hash + points.hashCode();
+        }
+        return hash;
+    }
+
+    /** Drop cached outlines of regions that no longer exist. */
+    private void cleanupCache() {
+        Iterator<Map.Entry<World, Map<String, CachedOutline>>> it = cache.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<World, Map<String, CachedOutline>> entry = it.next();
+            RegionManager manager = container.get(BukkitAdapter.adapt(entry.getKey()));
+            if (manager == null) {
+                it.remove();
+                continue;
+            }
+            entry.getValue().keySet().removeIf(id -> !manager.hasRegion(id));
+        }
+    }
+}
@@ -1,25 +1,29 @@
 package de.terranova.terraRenderer;
 
-import com.sk89q.worldedit.IncompleteRegionException;
+import com.destroystokyo.paper.event.server.ServerTickStartEvent;
 import com.sk89q.worldedit.LocalSession;
 import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldedit.bukkit.BukkitPlayer;
 import com.sk89q.worldedit.bukkit.WorldEditPlugin;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.RegionSelector;
+import com.sk89q.worldedit.session.SessionManager;
 import de.terranova.terraRenderer.refactor.BlockDisplayNode;
 import de.terranova.terraRenderer.refactor.DisplayGroups.DisplayCube;
-import de.terranova.terraRenderer.refactor.DisplayPackets;
+import de.terranova.terraRenderer.refactor.DisplayGroups.DisplayOutline;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 import org.bukkit.Bukkit;
 import org.bukkit.Color;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
-import org.bukkit.event.block.Action;
-import org.bukkit.event.player.PlayerInteractEvent;
-import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.util.*;
@@ -28,16 +32,44 @@ import java.util.*;
  * Visualizes the WorldEdit cuboid selection as:
  * - one wireframe cube (DisplayCube)
  * - simple BlockDisplayNode corner markers (pos1, pos2 + 6 others)
+ *
+ * Polygon, cylinder, ellipsoid and convex selections are drawn as one DisplayOutline per
+ * outline part (see RegionOutlines), tessellated for the player's distance within a fixed
+ * entity budget.
+ *
+ * WorldEdit has no selection event, so the selection of every player with a session is
+ * read once per tick (start of tick, before the renderer flushes) and compared with the
+ * shown one. This picks up wand clicks as well as //pos1, //expand, //shift etc., and any
+ * number of changes within a tick cost one update.
+ *
+ * The visuals are created once per player and then moved to the new selection with
+ * interpolation; an unchanged selection sends nothing.
  */
 public class WorldeditEventListener implements Listener {
 
     private final JavaPlugin plugin;
     private final WorldEditPlugin worldEdit;
+    private final SessionManager sessions;
 
     // Per player: the active wireframe cube
     private final Map<UUID, DisplayCube> activeCubes = new HashMap<>();
-    // Per player: all active corner display entity IDs
-    private final Map<UUID, List<Integer>> activeCornerDisplays = new HashMap<>();
+    // Per player: all active corner markers (same order as corners(...))
+    private final Map<UUID, List<BlockDisplayNode>> activeCorners = new HashMap<>();
+    // Per player: the selection the visuals currently show
+    private final Map<UUID, SelectionBounds> activeSelections = new HashMap<>();
+    // Per player: outline parts of a non-cuboid selection and the key they were built for
+    private final Map<UUID, List<DisplayOutline>> activeOutlines = new HashMap<>();
+    private final Map<UUID, OutlineKey> activeOutlineKeys = new HashMap<>();
+    // Per player: WorldEdit wrapper used as session key (avoids one allocation per tick)
+    private final Map<UUID, BukkitPlayer> sessionOwners = new HashMap<>();
+
+    // How many ticks the displays interpolate when the selection changes
+    private static final int INTERPOLATION_TICKS = 6;
+
+    private static final Material LINE_MATERIAL = Material.WHITE_CONCRETE;
+    private static final int LINE_GLOW = 0x22CCDD;
+    private static final float LINE_THICKNESS = 0.10f;
+    private static final float CORNER_SIZE = 0.20f;
 
     public WorldeditEventListener(JavaPlugin plugin) {
         this.plugin = plugin;
@@ -46,50 +78,52 @@ public class WorldeditEventListener implements Listener {
         if (this.worldEdit == null) {
             throw new IllegalStateException("WorldEditPlugin nicht gefunden!");
         }
+        this.sessions = worldEdit.getWorldEdit().getSessionManager();
     }
 
-    @EventHandler
-    public void onSelectionChange(PlayerInteractEvent event) {
-        // Only main hand, otherwise Off-Hand triggers as well
-        if (event.getHand() != EquipmentSlot.HAND) return;
-
-        Action action = event.getAction();
-        if (action != Action.LEFT_CLICK_BLOCK && action != Action.RIGHT_CLICK_BLOCK) return;
-
-        Player player = event.getPlayer();
-        if (player == null) return;
+    /**
+     * Block bounds of a shown selection (min/max inclusive), bound to a world.
+     * Doubles as the selection fingerprint compared every tick.
+     */
+    private record SelectionBounds(World world, BlockVector3 min, BlockVector3 max) {}
 
-        // Only react if holding the default WorldEdit wand (wooden axe)
-        if (player.getInventory().getItemInMainHand().getType() != Material.WOODEN_AXE) return;
+    /**
+     * Fingerprint of a shown outline: region shape (RegionOutlines.fingerprint) and the
+     * tessellation level it was built with.
+     */
+    private record OutlineKey(World world, long shape, int detail) {}
 
-        // Let WorldEdit update its selection first
-        Bukkit.getScheduler().runTask(plugin, () -> readSelection(player));
+    @EventHandler
+    public void onTickStart(ServerTickStartEvent event) {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            pollSelection(player);
+        }
     }
 
-    private void readSelection(Player player) {
-        LocalSession session = worldEdit.getSession(player);
-        com.sk89q.worldedit.world.World weWorld = BukkitAdapter.adapt(player.getWorld());
+    /**
+     * Compare the player's current selection with the shown one and update the visuals
+     * if it changed.
+     */
+    private void pollSelection(Player player) {
+        Region region = readSelection(player);
 
-        Region region;
-        try {
-            region = session.getSelection(weWorld);
-        } catch (IncompleteRegionException e) {
-            // Selection incomplete (pos1 or pos2 missing) -> clear visualization
-            clearPlayerDisplays(player);
-            return;
-        } catch (Exception ex) {
-            ex.printStackTrace();
+        if (region instanceof CuboidRegion) {
+            pollCuboid(player, new SelectionBounds(player.getWorld(), region.getMinimumPoint(), region.getMaximumPoint()));
+        } else if (region != null && RegionOutlines.supports(region)) {
+            pollOutline(player, region);
+        } else {
+            // Selection cleared, incomplete, unsupported or in another world
             clearPlayerDisplays(player);
-            return;
         }
+    }
 
-        if (!(region instanceof CuboidRegion cuboid)) {
-            clearPlayerDisplays(player);
-            return;
-        }
+    private void pollCuboid(Player player, SelectionBounds bounds) {
+        if (bounds.equals(activeSelections.get(player.getUniqueId()))) return; // nothing changed
+
+        clearOutline(player);
 
-        BlockVector3 min = cuboid.getMinimumPoint();
-        BlockVector3 max = cuboid.getMaximumPoint();
+        BlockVector3 min = bounds.min();
+        BlockVector3 max = bounds.max();
 
         String worldName = player.getWorld().getName();
         player.sendMessage("§7Auswahl geändert (WorldEdit-Style):");
@@ -97,123 +131,249 @@ public class WorldeditEventListener implements Listener {
         player.sendMessage("§7Min: §e" + min.x() + ", " + min.y() + ", " + min.z());
         player.sendMessage("§7Max: §e" + max.x() + ", " + max.y() + ", " + max.z());
 
-        clearPlayerDisplays(player);
-        drawCubeSelection(player, min, max);
+        renderOrUpdateSelection(player, bounds);
     }
 
     /**
-     * Despawns the existing wireframe cube and removes all corner blocks.
+     * Polygon, cylinder, ellipsoid and convex selections: one DisplayOutline per part,
+     * re-tessellated when the region changes or the player moved far enough to need another
+     * level of detail. Each part keeps its nodes, so a ring only moves along itself.
+     */
+    private void pollOutline(Player player, Region region) {
+        UUID uuid = player.getUniqueId();
+        OutlineKey shown = activeOutlineKeys.get(uuid);
+        OutlineKey key = new OutlineKey(
+                player.getWorld(),
+                RegionOutlines.fingerprint(region),
+                RegionOutlines.ringSegments(region, player.getEyeLocation(), shown == null ? 0 : shown.detail())
+        );
+        if (key.equals(shown)) return; // nothing changed
+
+        clearCuboid(player);
+
+        if (shown == null || shown.shape() != key.shape()) {
+            BlockVector3 min = region.getMinimumPoint();
+            BlockVector3 max = region.getMaximumPoint();
+            player.sendMessage("§7Auswahl geändert (§e" + region.getClass().getSimpleName() + "§7):");
+            player.sendMessage("§7Min: §e" + min.x() + ", " + min.y() + ", " + min.z());
+            player.sendMessage("§7Max: §e" + max.x() + ", " + max.y() + ", " + max.z());
+        }
+
+        List<DoubleArrayList> parts = RegionOutlines.build(region, key.detail());
+        List<Player> viewers = List.of(player);
+
+        List<DisplayOutline> outlines = activeOutlines.get(uuid);
+        if (outlines == null || shown == null || shown.world() != key.world()) {
+            clearOutline(player);
+            outlines = new ArrayList<>(parts.size());
+            activeOutlines.put(uuid, outlines);
+        }
+
+        // Surplus parts (e.g. cylinder -> polygon) are despawned
+        while (outlines.size() > parts.size()) {
+            outlines.removeLast().despawn(viewers);
+        }
+        for (int i = 0; i < parts.size(); i++) {
+            boolean created = i == outlines.size();
+            if (created) outlines.add(new DisplayOutline(LINE_THICKNESS, LINE_MATERIAL, true, LINE_GLOW));
+            outlines.get(i).update(key.world(), parts.get(i), viewers, created ? 0 : INTERPOLATION_TICKS);
+        }
+        activeOutlineKeys.put(uuid, key);
+    }
+
+    /**
+     * Current (complete) selection of the player in their own world, or null.
+     * Cheap: never creates a session and never copies the region.
+     */
+    private Region readSelection(Player player) {
+        BukkitPlayer owner = sessionOwners.computeIfAbsent(player.getUniqueId(), uuid -> BukkitAdapter.adapt(player));
+        LocalSession session = sessions.getIfPresent(owner);
+        if (session == null) return null;
+
+        // getRegionSelector(world) resets the selection for a different world, so check first
+        com.sk89q.worldedit.world.World selectionWorld = session.getSelectionWorld();
+        if (selectionWorld == null || !selectionWorld.getName().equals(player.getWorld().getName())) return null;
+
+        RegionSelector selector = session.getRegionSelector(selectionWorld);
+        if (!selector.isDefined()) return null;
+
+        return selector.getIncompleteRegion();
+    }
+
+    /**
+     * Despawns the existing wireframe cube, all corner blocks and the outline.
      */
     private void clearPlayerDisplays(Player player) {
+        clearCuboid(player);
+        clearOutline(player);
+    }
+
+    /**
+     * Despawns the existing wireframe cube and removes all corner blocks.
+     */
+    private void clearCuboid(Player player) {
         UUID uuid = player.getUniqueId();
+        // Polled every tick for players without a selection: nothing to clear, no allocation
+        if (!activeSelections.containsKey(uuid) && !activeCubes.containsKey(uuid)
+                && !activeCorners.containsKey(uuid)) {
+            return;
+        }
         List<Player> viewers = List.of(player);
 
-        // Despawn previous cube (this removes all its internal edges)
+        // Cube edges + corner markers, removed with a single packet
+        List<BlockDisplayNode> nodes = new ArrayList<>(20);
         DisplayCube cube = activeCubes.remove(uuid);
         if (cube != null) {
-            cube.despawn(viewers);
+            nodes.addAll(cube.getNodes());
+        }
+        List<BlockDisplayNode> corners = activeCorners.remove(uuid);
+        if (corners != null) {
+            nodes.addAll(corners);
         }
+        BlockDisplayNode.despawnAll(nodes, viewers);
+
+        activeSelections.remove(uuid);
+    }
+
+    private void clearOutline(Player player) {
+        UUID uuid = player.getUniqueId();
+        if (!activeOutlines.containsKey(uuid) && !activeOutlineKeys.containsKey(uuid)) return;
 
-        // Remove all corner displays by entityId
-        List<Integer> cornerIds = activeCornerDisplays.remove(uuid);
-        if (cornerIds != null && !cornerIds.isEmpty()) {
-            for (int id : cornerIds) {
-                DisplayPackets.remove(id, viewers);
+        List<DisplayOutline> outlines = activeOutlines.remove(uuid);
+        if (outlines != null) {
+            for (DisplayOutline outline : outlines) {
+                outline.despawn(List.of(player));
             }
         }
+        activeOutlineKeys.remove(uuid);
+    }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent event) {
+        clearPlayerDisplays(event.getPlayer());
+        sessionOwners.remove(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler
+    public void onWorldChange(PlayerChangedWorldEvent event) {
+        clearPlayerDisplays(event.getPlayer());
     }
 
     /**
      * One wireframe cube for the selection, plus simple BlockDisplayNode corners.
+     *
+     * First call (or after a world change) spawns the visuals; afterwards the existing cube
+     * edges and corners are moved with interpolation. Corners that stay in place are not
+     * touched, and edges whose geometry did not change produce no packets.
      */
-    private void drawCubeSelection(Player player, BlockVector3 min, BlockVector3 max) {
-        // WorldEdit regions are block-inclusive, so outer edge goes to max+1
-        double xMin = min.x();
-        double yMin = min.y();
-        double zMin = min.z();
+    private void renderOrUpdateSelection(Player player, SelectionBounds bounds) {
+        UUID uuid = player.getUniqueId();
+        List<Player> viewers = List.of(player);
+
+        SelectionBounds previous = activeSelections.put(uuid, bounds);
+        DisplayCube cube = activeCubes.get(uuid);
+        List<BlockDisplayNode> markers = activeCorners.get(uuid);
 
-        double xMax = max.x() + 1;
-        double yMax = max.y() + 1;
-        double zMax = max.z() + 1;
+        if (previous == null || previous.world() != bounds.world()
+                || cube == null || markers == null || markers.size() != 8) {
+            clearCuboid(player);
+            activeSelections.put(uuid, bounds);
+            drawCubeSelection(player, bounds);
+            return;
+        }
+
+        List<Location> corners = corners(bounds);
+        cube.update(corners.get(0), corners.get(1), viewers, INTERPOLATION_TICKS);
 
-        var world = player.getWorld();
+        for (int i = 0; i < 8; i++) {
+            BlockDisplayNode node = markers.get(i);
+            Location loc = corners.get(i);
+            if (node.x() == loc.getX() && node.y() == loc.getY() && node.z() == loc.getZ()) continue;
+
+            node.location(loc);
+            node.update(viewers, INTERPOLATION_TICKS);
+        }
+    }
+
+    /**
+     * Spawn the wireframe cube and the 8 corner markers for a selection.
+     */
+    private void drawCubeSelection(Player player, SelectionBounds bounds) {
         List<Player> viewers = List.of(player);
         UUID uuid = player.getUniqueId();
-
-        List<Integer> cornerIds = new ArrayList<>();
+        List<Location> corners = corners(bounds);
 
         // === Wireframe selection cube ===
         // DisplayCube is implemented as 12 line segments (BlockDisplays).
-        Material lineMat = Material.WHITE_CONCRETE; // invisible; change to GLASS etc. if you want visible edges
-        int lineGlow = 0x22CCDD;
-        float lineThickness = 0.10f;
-
-        Location cubeFrom = new Location(world, xMin, yMin, zMin);
-        Location cubeTo   = new Location(world, xMax, yMax, zMax);
-
         DisplayCube selectionCube = new DisplayCube(
-                cubeFrom,
-                cubeTo,
-                lineThickness,
-                lineMat,
+                corners.get(0),
+                corners.get(1),
+                LINE_THICKNESS,
+                LINE_MATERIAL,
                 true,
-                lineGlow
+                LINE_GLOW
         );
         selectionCube.spawn(viewers);
 
-        // store cube for later despawn
+        // store cube for later updates/despawn
         activeCubes.put(uuid, selectionCube);
 
-        // === Corner positions ===
-        Location c000 = new Location(world, xMin, yMin, zMin); // pos1 corner (min,min,min)
-        Location c100 = new Location(world, xMax, yMin, zMin);
-        Location c010 = new Location(world, xMin, yMax, zMin);
-        Location c110 = new Location(world, xMax, yMax, zMin);
-
-        Location c001 = new Location(world, xMin, yMin, zMax);
-        Location c101 = new Location(world, xMax, yMin, zMax);
-        Location c011 = new Location(world, xMin, yMax, zMax);
-        Location c111 = new Location(world, xMax, yMax, zMax); // pos2 corner (max,max,max)
-
-        float cornerSize = 0.20f;
+        List<BlockDisplayNode> markers = new ArrayList<>(8);
 
         // === Special WorldEdit corners as simple BlockDisplayNodes ===
         // pos1 (min) -> emerald block with green glow
-        cornerIds.add(spawnCornerBlock(c000, Material.EMERALD_BLOCK, cornerSize, Color.LIME, viewers));
+        markers.add(spawnCornerBlock(corners.get(0), Material.EMERALD_BLOCK, CORNER_SIZE, Color.LIME, viewers));
         // pos2 (max) -> redstone block with red glow
-        cornerIds.add(spawnCornerBlock(c111, Material.REDSTONE_BLOCK, cornerSize, Color.RED, viewers));
+        markers.add(spawnCornerBlock(corners.get(1), Material.REDSTONE_BLOCK, CORNER_SIZE, Color.RED, viewers));
 
         // Remaining 6 corners as black blocks with black glow
-        Material defaultCornerMat = Material.BLACK_CONCRETE;
-        Color defaultCornerGlow = Color.BLACK;
-
-        cornerIds.add(spawnCornerBlock(c100, defaultCornerMat, cornerSize, defaultCornerGlow, viewers));
-        cornerIds.add(spawnCornerBlock(c010, defaultCornerMat, cornerSize, defaultCornerGlow, viewers));
-        cornerIds.add(spawnCornerBlock(c110, defaultCornerMat, cornerSize, defaultCornerGlow, viewers));
+        for (int i = 2; i < 8; i++) {
+            markers.add(spawnCornerBlock(corners.get(i), Material.BLACK_CONCRETE, CORNER_SIZE, Color.BLACK, viewers));
+        }
 
-        cornerIds.add(spawnCornerBlock(c001, defaultCornerMat, cornerSize, defaultCornerGlow, viewers));
-        cornerIds.add(spawnCornerBlock(c101, defaultCornerMat, cornerSize, defaultCornerGlow, viewers));
-        cornerIds.add(spawnCornerBlock(c011, defaultCornerMat, cornerSize, defaultCornerGlow, viewers));
+        activeCorners.put(uuid, markers);
+    }
 
-        cornerIds.removeIf(id -> id < 0);
-        activeCornerDisplays.put(uuid, cornerIds);
+    /**
+     * The 8 outer corners of a selection: pos1 (min), pos2 (max), then the 6 others.
+     */
+    private static List<Location> corners(SelectionBounds bounds) {
+        // WorldEdit regions are block-inclusive, so outer edge goes to max+1
+        World world = bounds.world();
+        double xMin = bounds.min().x();
+        double yMin = bounds.min().y();
+        double zMin = bounds.min().z();
+
+        double xMax = bounds.max().x() + 1;
+        double yMax = bounds.max().y() + 1;
+        double zMax = bounds.max().z() + 1;
+
+        return List.of(
+                new Location(world, xMin, yMin, zMin), // pos1 corner (min,min,min)
+                new Location(world, xMax, yMax, zMax), // pos2 corner (max,max,max)
+                new Location(world, xMax, yMin, zMin),
+                new Location(world, xMin, yMax, zMin),
+                new Location(world, xMax, yMax, zMin),
+                new Location(world, xMin, yMin, zMax),
+                new Location(world, xMax, yMin, zMax),
+                new Location(world, xMin, yMax, zMax)
+        );
     }
 
     /**
      * Simple BlockDisplay corner marker, centered at loc, with given size and glow.
-     * This mimics your old "corner block" behavior.
+     * Moves in MoveMode.TRANSLATION so it glides along with the cube edges.
      */
-    private int spawnCornerBlock(Location loc,
-                                 Material mat,
-                                 float size,
-                                 Color glow,
-                                 List<Player> viewers) {
-        if (loc == null) return -1;
-
+    private BlockDisplayNode spawnCornerBlock(Location loc,
+                                              Material mat,
+                                              float size,
+                                              Color glow,
+                                              List<Player> viewers) {
         BlockDisplayNode node = new BlockDisplayNode()
                 .location(loc)
                 .size(size)
-                .material(mat);
+                .material(mat)
+                .moveMode(BlockDisplayNode.MoveMode.TRANSLATION);
 
         if (glow != null) {
             node.glow(glow.asRGB());
@@ -222,6 +382,6 @@ public class WorldeditEventListener implements Listener {
         }
 
         node.spawn(viewers);
-        return node.getDisplayEntityId();
+        return node;
     }
 }
@@ -1,131 +1,297 @@
 package de.terranova.terraRenderer.refactor;
 
-import com.mojang.math.Transformation;
-import net.minecraft.server.level.ServerLevel;
-import net.minecraft.world.entity.Display;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.network.syncher.SynchedEntityData.DataValue;
+import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.EntityType;
-import net.minecraft.world.entity.Interaction;
-import org.bukkit.Color;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
-import org.bukkit.craftbukkit.CraftWorld;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.craftbukkit.block.data.CraftBlockData;
 import org.bukkit.entity.Player;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.util.Vector;
 import org.joml.Quaternionf;
+import org.joml.Quaternionfc;
 import org.joml.Vector3f;
+import org.joml.Vector3fc;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import java.util.function.Consumer;
 
 /**
- * High-level wrapper around an NMS BlockDisplay entity.
+ * High-level wrapper around a packet-only BlockDisplay entity.
  *
- * - Renders a BlockDisplay via packets only (not added to the world)
- * - Optionally spawns a packet-only Interaction entity as a click hitbox
+ * - Renders a BlockDisplay via packets only (no NMS entity is ever constructed)
+ * - Optionally spawns a packet-only Interaction entity as a click hitbox, per viewer and
+ *   only while the viewer is within interaction reach (HitboxTracker)
  * - Clicks are captured via Netty (ServerboundInteractPacket) and routed to onClick(...)
+ *   on the main thread (ClickQueue); in ClickMode.RAYCAST swing/use packets are raycast
+ *   against the node boxes instead and no hitbox entity exists at all (RaycastIndex)
+ * - Hover is raycast on the server (HoverTracker), no hitbox is needed for onHover(...)
+ * - Moves either teleport the entity or, in MoveMode.TRANSLATION, only shift its
+ *   transformation, so they are interpolated like scale/rotation changes
  */
 public class BlockDisplayNode {
 
-    // ------------------------------------------------------------------------
-    // Static registries for hitboxes
-    // ------------------------------------------------------------------------
+    /** How clicks on the node are detected. */
+    public enum ClickMode {
+        /** Interaction entity per node; the client reports clicks on it. */
+        HITBOX,
+        /**
+         * No extra entity: swing and use-item packets are raycast on the server against the
+         * node's rotated box. Halves the client entity count of interactive scenes; the click
+         * cannot cancel the client's own interaction with a block behind the node.
+         */
+        RAYCAST
+    }
+
+    /** How position changes reach the client. */
+    public enum MoveMode {
+        /** Teleport the entity; the client glides over the pos/rot interpolation duration. */
+        TELEPORT,
+        /**
+         * Keep the entity where it was spawned and move the transformation's translation
+         * instead (no teleport packet). Once the offset grows beyond MAX_TRANSLATION_OFFSET
+         * the entity is re-based with one interpolated teleport.
+         */
+        TRANSLATION
+    }
 
-    /** Map of hitbox entity id (Interaction) -> BlockDisplayNode. */
-    private static final Map<Integer, BlockDisplayNode> NODES_BY_HITBOX_ID =
-            new ConcurrentHashMap<>();
+    /**
+     * Largest distance (per axis, blocks) between entity and rendered position in
+     * TRANSLATION mode. The client culls displays by the entity position, so it must stay close.
+     */
+    public static final double MAX_TRANSLATION_OFFSET = 8d;
 
     // ------------------------------------------------------------------------
     // Per-node state
     // ------------------------------------------------------------------------
 
-    private Location location;
-    private Vector3f scale = new Vector3f(1f, 1f, 1f);
-    private Vector3f rotationEulerDeg = new Vector3f(0f, 0f, 0f);
-    private Material material = Material.BARRIER;
+    /** World of the node, or null if no location is set. */
+    private World world;
+    private double x, y, z;
+    private final Vector3f scale = new Vector3f(1f, 1f, 1f);
+    /** Rotation around the display center, stored natively (no Euler round trip). */
+    private final Quaternionf rotation = new Quaternionf();
+    /** Rendered block state; null if the configured material is not a block. */
+    private BlockState blockState = BlockStateCache.get(Material.BARRIER);
 
     private boolean glowing = false;
-    private Color glowColor = null;
+    /** Glow color override as ARGB, -1 = none. */
+    private int glowColor = -1;
 
-    /** Packet-only BlockDisplay entity id. */
-    private int displayEntityId = -1;
+    /** Packet-only BlockDisplay entity id, claimed once from the NMS entity counter. */
+    private final int displayEntityId = Entity.nextEntityId();
 
     /** Packet-only hitbox entity id (Interaction), or -1 if none. */
     private int hitboxEntityId = -1;
 
+    /** Viewers that currently have the hitbox (only those within reach, see HitboxTracker). */
+    private final Set<UUID> hitboxViewers = new HashSet<>();
+
+    /** Whether the display is spawned for at least one viewer. */
+    private boolean spawned;
+
+    /** Players that currently have this node spawned. */
+    private final Set<UUID> viewers = new HashSet<>();
+
+    /**
+     * Animation pose, applied on top of position/scale/rotation by the DisplayAnimator.
+     * Only changes the transformation, the entity itself (and its hitbox) stays in place.
+     */
+    private final Vector3f animOffset = new Vector3f();
+    private final Vector3f animScale = new Vector3f(1f, 1f, 1f);
+    private final Quaternionf animRotation = new Quaternionf();
+
+    private MoveMode moveMode = MoveMode.TELEPORT;
+
+    private ClickMode clickMode = ClickMode.HITBOX;
+
+    /** Radius (blocks) within which the ViewRegistry shows this node. */
+    private double viewRadius = ViewRegistry.DEFAULT_VIEW_RADIUS;
+
     /** Optional click handler. */
     private Consumer<ClickContext> clickHandler;
 
-    /** Optional hover handler (not triggered yet, reserved for future use). */
+    /** Optional hover handler (HOVER_ENTER / HOVER_EXIT, see HoverTracker). */
     private Consumer<ClickContext> hoverHandler;
 
-    /** The server-side BlockDisplay instance we re-use for updates (packet-only). */
-    private Display.BlockDisplay displayEntity;
+    // ------------------------------------------------------------------------
+    // Last state sent to the client (change tracking for delta updates)
+    // ------------------------------------------------------------------------
 
-    /** The server-side Interaction instance we re-use for updates (packet-only). */
-    private Interaction hitboxEntity;
+    /** Scratch for the transformation math (updates are flushed on the main thread only). */
+    private static final Vector3f TRANSLATION_SCRATCH = new Vector3f();
+    private static final Vector3f SCALE_SCRATCH = new Vector3f();
+    private static final Quaternionf ROTATION_SCRATCH = new Quaternionf();
+
+    /** Client-side default of the BlockDisplay block state. */
+    private static final BlockState CLIENT_DEFAULT_BLOCK_STATE = Blocks.AIR.defaultBlockState();
+
+    /** Entity position on the client (in TRANSLATION mode the rendered position may differ). */
+    private double sentX, sentY, sentZ;
+    /** Rendered position the client was last given. */
+    private double flushedX, flushedY, flushedZ;
+    private final Vector3f sentTranslation = new Vector3f();
+    private final Vector3f sentScale = new Vector3f(1f, 1f, 1f);
+    private final Quaternionf sentRotation = new Quaternionf();
+    private BlockState sentBlockState;
+    private byte sentFlags;
+    private int sentGlowColor;
+    private int sentInterpolationDuration;
+    private int sentPosRotInterpolationDuration;
+    private float sentHitboxWidth, sentHitboxHeight;
 
     // ------------------------------------------------------------------------
     // Fluent configuration API
     // ------------------------------------------------------------------------
 
     public BlockDisplayNode location(Location location) {
-        this.location = (location == null) ? null : location.clone();
+        if (location == null) {
+            this.world = null;
+            return this;
+        }
+        return position(location.getWorld(), location.getX(), location.getY(), location.getZ());
+    }
+
+    /** Allocation-free variant of location(Location). */
+    public BlockDisplayNode position(World world, double x, double y, double z) {
+        this.world = world;
+        this.x = x;
+        this.y = y;
+        this.z = z;
         return this;
     }
 
     /** Convenience: uniform scale in all directions (world-space size of the rendered block). */
     public BlockDisplayNode size(float size) {
-        this.scale = new Vector3f(size, size, size);
+        this.scale.set(size, size, size);
         return this;
     }
 
     public BlockDisplayNode scale(Vector3f scale) {
-        this.scale = (scale == null) ? new Vector3f(1f, 1f, 1f) : new Vector3f(scale);
+        if (scale == null) {
+            this.scale.set(1f, 1f, 1f);
+        } else {
+            this.scale.set(scale);
+        }
+        return this;
+    }
+
+    public BlockDisplayNode scale(float x, float y, float z) {
+        this.scale.set(x, y, z);
         return this;
     }
 
+    /** Euler angles in degrees (x = pitch, y = yaw, z = roll), applied in YXZ order. */
     public BlockDisplayNode rotationEulerDeg(Vector3f eulerDeg) {
-        this.rotationEulerDeg = (eulerDeg == null) ? new Vector3f(0f, 0f, 0f) : new Vector3f(eulerDeg);
+        if (eulerDeg == null) {
+            this.rotation.identity();
+        } else {
+            this.rotation.rotationYXZ(
+                    (float) Math.toRadians(eulerDeg.y()),
+                    (float) Math.toRadians(eulerDeg.x()),
+                    (float) Math.toRadians(eulerDeg.z())
+            );
+        }
+        return this;
+    }
+
+    /** Rotation around the display center; the quaternion is copied. */
+    public BlockDisplayNode rotation(Quaternionfc rotation) {
+        if (rotation == null) {
+            this.rotation.identity();
+        } else {
+            this.rotation.set(rotation);
+        }
         return this;
     }
 
+    /** Render the default block state of the given material (cached, no allocation). */
     public BlockDisplayNode material(Material material) {
-        this.material = material;
+        this.blockState = BlockStateCache.get(material);
+        return this;
+    }
+
+    /** Render the given Bukkit block data (e.g. stairs with a facing). */
+    public BlockDisplayNode blockData(BlockData blockData) {
+        this.blockState = (blockData == null) ? null : ((CraftBlockData) blockData).getState();
+        return this;
+    }
+
+    /** Render the given NMS block state directly. */
+    public BlockDisplayNode blockState(BlockState blockState) {
+        this.blockState = blockState;
         return this;
     }
 
     /** Disable glow. */
     public BlockDisplayNode glow() {
         this.glowing = false;
-        this.glowColor = null;
+        this.glowColor = -1;
         return this;
     }
 
     /** Enable glow with the given RGB color (0xRRGGBB). */
     public BlockDisplayNode glow(int rgb) {
         this.glowing = true;
-        this.glowColor = Color.fromRGB(rgb & 0xFFFFFF);
+        this.glowColor = 0xFF000000 | (rgb & 0xFFFFFF);
+        return this;
+    }
+
+    /** How position changes are sent, see MoveMode. */
+    public BlockDisplayNode moveMode(MoveMode moveMode) {
+        this.moveMode = moveMode == null ? MoveMode.TELEPORT : moveMode;
+        return this;
+    }
+
+    /** How clicks are detected, see ClickMode. A spawned node switches right away. */
+    public BlockDisplayNode clickMode(ClickMode clickMode) {
+        ClickMode next = clickMode == null ? ClickMode.HITBOX : clickMode;
+        if (next == this.clickMode) return this;
+
+        this.clickMode = next;
+        if (spawned) trackClicks();
+        return this;
+    }
+
+    /** Radius in blocks within which the ViewRegistry spawns this node for a viewer. */
+    public BlockDisplayNode viewRadius(double blocks) {
+        this.viewRadius = Math.max(0d, blocks);
         return this;
     }
 
     /**
      * Register a click handler. When set, a packet-only Interaction hitbox entity is spawned
+     * for viewers within reach (or, in ClickMode.RAYCAST, the node is raycast on swing/use)
      * and click packets are routed via Netty to this handler.
      */
     public BlockDisplayNode onClick(Consumer<ClickContext> handler) {
         this.clickHandler = handler;
+        if (spawned) trackClicks();
         return this;
     }
 
     /**
-     * Register a hover handler placeholder.
-     * NOTE: not triggered yet – reserved for ray-trace/hover implementation.
+     * Register a hover handler. It receives HOVER_ENTER when a viewer starts looking at the
+     * node (within interaction range, not behind a block) and HOVER_EXIT when they look away;
+     * the raycast runs on the server against the node's rotated box, so no hitbox entity is
+     * spawned for it.
      */
-    @Deprecated
     public BlockDisplayNode onHover(Consumer<ClickContext> handler) {
         this.hoverHandler = handler;
+        if (spawned) trackRaycast();
         return this;
     }
 
@@ -134,7 +300,7 @@ public class BlockDisplayNode {
     // ------------------------------------------------------------------------
 
     public Location getLocation() {
-        return location == null ? null : location.clone();
+        return world == null ? null : new Location(world, x, y, z);
     }
 
     public Vector3f getScale() {
@@ -142,7 +308,15 @@ public class BlockDisplayNode {
     }
 
     public Vector3f getRotationEulerDeg() {
-        return new Vector3f(rotationEulerDeg);
+        return DisplayMath.quaternionToEulerYXZDeg(rotation);
+    }
+
+    public Quaternionf getRotation() {
+        return new Quaternionf(rotation);
+    }
+
+    public BlockState getBlockState() {
+        return blockState;
     }
 
     public int getDisplayEntityId() {
@@ -153,52 +327,290 @@ public class BlockDisplayNode {
         return hitboxEntityId;
     }
 
+    public MoveMode getMoveMode() {
+        return moveMode;
+    }
+
+    public ClickMode getClickMode() {
+        return clickMode;
+    }
+
+    public double getViewRadius() {
+        return viewRadius;
+    }
+
+    public boolean isSpawned() {
+        return spawned;
+    }
+
+    /** Online players that currently have this node spawned. */
+    public List<Player> getViewers() {
+        List<Player> players = new ArrayList<>(viewers.size());
+        for (UUID uuid : viewers) {
+            Player p = Bukkit.getPlayer(uuid);
+            if (p != null) players.add(p);
+        }
+        return players;
+    }
+
+    public boolean isViewer(Player player) {
+        return player != null && viewers.contains(player.getUniqueId());
+    }
+
+    World world() {
+        return world;
+    }
+
+    /**
+     * Set the animation pose (offset in blocks, scale factors in node space, rotation
+     * before the node rotation). Sent with the next update like any other change.
+     */
+    void animationPose(Vector3fc offset, Vector3fc scaleFactor, Quaternionfc rotation) {
+        this.animOffset.set(offset);
+        this.animScale.set(scaleFactor);
+        this.animRotation.set(rotation);
+    }
+
+    void resetAnimationPose() {
+        this.animOffset.zero();
+        this.animScale.set(1f, 1f, 1f);
+        this.animRotation.identity();
+    }
+
+    /** Center x of the node in world coordinates. */
+    public double x() {
+        return x;
+    }
+
+    public double y() {
+        return y;
+    }
+
+    public double z() {
+        return z;
+    }
+
     // ------------------------------------------------------------------------
     // Lifecycle
     // ------------------------------------------------------------------------
 
     /**
-     * Spawn this BlockDisplay visually via packets and, if needed, a hitbox
-     * Interaction entity for click/hover interactions.
+     * Spawn this BlockDisplay visually via packets. Clickable nodes are handed to the
+     * HitboxTracker, which spawns the Interaction hitbox for viewers within reach.
+     *
+     * Players joining an already spawned node receive exactly the state the existing
+     * viewers have; pending changes reach everyone with the next scheduler flush.
      */
     public void spawn(Collection<Player> players) {
-        Display.BlockDisplay nmsDisplay = createDisplayNmsEntity();
-        if (nmsDisplay == null) return;
-
-        this.displayEntity = nmsDisplay;
-        this.displayEntityId = nmsDisplay.getId();
-        DisplayPackets.spawn(nmsDisplay, players);
-
-        // If any interaction handler is present, spawn a hitbox entity
-        if (clickHandler != null || hoverHandler != null) {
-            Interaction nmsHitbox = createHitboxNmsEntity();
-            if (nmsHitbox != null) {
-                this.hitboxEntity = nmsHitbox;
-                this.hitboxEntityId = nmsHitbox.getId();
-                NODES_BY_HITBOX_ID.put(this.hitboxEntityId, this);
-                DisplayPackets.spawn(nmsHitbox, players);
+        if (world == null || blockState == null) return;
+
+        List<DataValue<?>> data = new ArrayList<>(8);
+        if (!spawned) {
+            // The client starts from entity defaults, so diffing against them yields the non-default values
+            resetSentState();
+            rememberSentPosition();
+            applySettingsToDisplay(data, 0, 0);
+            spawned = true;
+            DisplayRegistry.register(this);
+        } else {
+            appendSentState(data);
+        }
+
+        DisplayPackets.spawn(displayEntityId, EntityType.BLOCK_DISPLAY, sentX, sentY, sentZ, data, players);
+
+        for (Player p : players) {
+            if (p != null && p.isOnline()) {
+                viewers.add(p.getUniqueId());
             }
         }
+
+        // New viewers get a hitbox once they are within reach
+        if (isClickable()) {
+            HitboxTracker.track(this);
+        }
+        if (needsRaycast()) {
+            RaycastIndex.track(this);
+        }
+    }
+
+    /** Whether this node needs a hitbox (a click handler is set, ClickMode.HITBOX). */
+    boolean isClickable() {
+        return clickHandler != null && clickMode == ClickMode.HITBOX;
+    }
+
+    /** Whether swing/use packets are raycast against this node (ClickMode.RAYCAST). */
+    boolean isRaycastClickable() {
+        return clickHandler != null && clickMode == ClickMode.RAYCAST;
+    }
+
+    boolean isHoverable() {
+        return hoverHandler != null;
+    }
+
+    /** Whether this node belongs into the RaycastIndex. */
+    boolean needsRaycast() {
+        return isHoverable() || isRaycastClickable();
+    }
+
+    private void trackRaycast() {
+        if (needsRaycast()) RaycastIndex.track(this);
+        else RaycastIndex.untrack(this);
+    }
+
+    /** Hand a spawned node to the HitboxTracker and RaycastIndex after its click setup changed. */
+    private void trackClicks() {
+        if (isClickable()) {
+            HitboxTracker.track(this);
+        } else {
+            HitboxTracker.untrack(this);
+            removeHitbox();
+        }
+        trackRaycast();
+    }
+
+    /** Remove the hitbox entity from every client that has it and free its id. */
+    private void removeHitbox() {
+        if (hitboxEntityId == -1) return;
+
+        List<Player> players = new ArrayList<>(hitboxViewers.size());
+        for (UUID uuid : hitboxViewers) {
+            Player p = Bukkit.getPlayer(uuid);
+            if (p != null) players.add(p);
+        }
+        DisplayPackets.remove(hitboxEntityId, players);
+        hitboxViewers.clear();
+
+        DisplayRegistry.unregisterHitbox(hitboxEntityId);
+        hitboxEntityId = -1;
+    }
+
+    /** Spawn the hitbox for one viewer of the node. Called by the HitboxTracker. */
+    void showHitbox(Player player) {
+        if (!spawned || !isClickable() || !viewers.contains(player.getUniqueId())) return;
+        if (!hitboxViewers.add(player.getUniqueId())) return;
+
+        List<DataValue<?>> hitboxData = new ArrayList<>(2);
+        if (hitboxEntityId == -1) {
+            hitboxEntityId = Entity.nextEntityId();
+            DisplayRegistry.registerHitbox(hitboxEntityId, this);
+
+            sentHitboxWidth = DisplayEntityData.DEFAULT_INTERACTION_SIZE;
+            sentHitboxHeight = DisplayEntityData.DEFAULT_INTERACTION_SIZE;
+            applySettingsToHitbox(hitboxData);
+        } else {
+            appendSentHitboxState(hitboxData);
+        }
+        DisplayPackets.spawn(hitboxEntityId, EntityType.INTERACTION,
+                flushedX, hitboxY(flushedY, sentHitboxHeight), flushedZ, hitboxData, List.of(player));
+    }
+
+    /**
+     * Drop the hitbox of one viewer; its id is appended to removedIds, the caller sends
+     * the remove packet. Called by the HitboxTracker.
+     */
+    void hideHitbox(UUID viewer, IntArrayList removedIds) {
+        if (hitboxViewers.remove(viewer) && hitboxEntityId != -1) {
+            removedIds.add(hitboxEntityId);
+        }
+    }
+
+    boolean hasHitbox(UUID viewer) {
+        return hitboxViewers.contains(viewer);
+    }
+
+    /** Half the larger hitbox dimension, added to the reach when checking the distance. */
+    double hitboxExtent() {
+        return Math.max(hitboxWidth(), hitboxHeight()) * 0.5;
     }
 
     /**
-     * Despawn both the BlockDisplay and the hitbox entity via packets
-     * and cleanup static mappings + cached instances.
+     * Despawn both the BlockDisplay and the hitbox entity for the given players.
+     * Once no viewer is left, static mappings are cleaned up.
      */
     public void despawn(Collection<Player> players) {
-        if (displayEntityId != -1) {
-            DisplayPackets.remove(displayEntityId, players);
-            displayEntityId = -1;
+        despawnAll(List.of(this), players);
+    }
+
+    /**
+     * Despawn several nodes for the given players with a single remove-entities packet
+     * (display and hitbox ids of all nodes).
+     */
+    public static void despawnAll(Collection<BlockDisplayNode> nodes, Collection<Player> players) {
+        if (nodes == null || nodes.isEmpty()) return;
+
+        IntArrayList removedIds = new IntArrayList(nodes.size() * 2);
+        for (BlockDisplayNode node : nodes) {
+            if (node != null) node.detach(players, removedIds);
+        }
+        if (!removedIds.isEmpty() && players != null && !players.isEmpty()) {
+            DisplayPackets.remove(removedIds.toIntArray(), players);
         }
+    }
+
+    /** Despawn bookkeeping; the entity ids to remove are appended to removedIds. */
+    private void detach(Collection<Player> players, IntArrayList removedIds) {
+        if (spawned) {
+            removedIds.add(displayEntityId);
+        }
+
+        boolean hadHitbox = false;
+        if (players != null) {
+            for (Player p : players) {
+                if (p == null) continue;
+                if (viewers.remove(p.getUniqueId())) ViewRegistry.onViewerDropped(this, p.getUniqueId());
+                hadHitbox |= hitboxViewers.remove(p.getUniqueId());
+            }
+        }
+        if (hadHitbox && hitboxEntityId != -1) {
+            removedIds.add(hitboxEntityId);
+        }
+
+        if (viewers.isEmpty()) {
+            release();
+        }
+    }
+
+    /**
+     * Forget a viewer without sending packets, e.g. because the client already
+     * dropped all entities (quit, world change).
+     */
+    void forgetViewer(UUID uuid) {
+        hitboxViewers.remove(uuid);
+        if (!viewers.remove(uuid)) return;
+
+        ViewRegistry.onViewerDropped(this, uuid);
+        if (viewers.isEmpty()) {
+            release();
+        }
+    }
+
+    /** Forget all viewers without sending packets (registry teardown). */
+    void forgetAllViewers() {
+        for (UUID uuid : viewers) {
+            ViewRegistry.onViewerDropped(this, uuid);
+        }
+        viewers.clear();
+        hitboxViewers.clear();
+        release();
+    }
+
+    /**
+     * No viewer left: drop pending updates and the registry entries. A node tracked by the
+     * ViewRegistry stays tracked, it is spawned again for players in range.
+     */
+    private void release() {
+        // A pending update would only target entities that are gone now
+        RenderScheduler.cancel(this);
+        spawned = false;
+        DisplayRegistry.unregister(this);
+        HitboxTracker.untrack(this);
+        RaycastIndex.untrack(this);
+        hitboxViewers.clear();
 
         if (hitboxEntityId != -1) {
-            DisplayPackets.remove(hitboxEntityId, players);
-            NODES_BY_HITBOX_ID.remove(hitboxEntityId);
+            DisplayRegistry.unregisterHitbox(hitboxEntityId);
             hitboxEntityId = -1;
         }
-
-        this.displayEntity = null;
-        this.hitboxEntity = null;
     }
 
     /**
@@ -208,178 +620,401 @@ public class BlockDisplayNode {
         update(players, 0);
     }
 
+    /**
+     * Update for all current viewers (e.g. nodes shown by the ViewRegistry).
+     *
+     * @param interpolationDurationTicks number of ticks the client should interpolate between old and new state
+     */
+    public void update(int interpolationDurationTicks) {
+        if (viewers.isEmpty()) return;
+        update(getViewers(), interpolationDurationTicks);
+    }
+
     /**
      * Update the existing BlockDisplay using built-in interpolation.
+     * Only marks the node dirty; the RenderScheduler sends the final state once per tick.
      *
      * @param interpolationDurationTicks number of ticks the client should interpolate between old and new state
      */
     public void update(Collection<Player> players, int interpolationDurationTicks) {
+        update(players, interpolationDurationTicks, 0);
+    }
+
+    /**
+     * Like update(players, interpolationDurationTicks), but the client waits
+     * interpolationDelayTicks before it starts to interpolate (keyframes sent ahead of time).
+     */
+    public void update(Collection<Player> players, int interpolationDurationTicks, int interpolationDelayTicks) {
         if (players == null || players.isEmpty()) return;
 
+        RenderMetrics.updateCalled();
+        RenderScheduler.markDirty(this, players, interpolationDurationTicks, interpolationDelayTicks);
+    }
+
+    /**
+     * Sends the current state to the given viewers and to everyone else who currently views
+     * the node. Called by the RenderScheduler at most once per tick per node.
+     */
+    void flushUpdate(Collection<Player> requested, int interpolationDurationTicks, int interpolationDelayTicks) {
+        if (requested == null || requested.isEmpty()) return;
+
+        RenderMetrics.flushed();
+
         // If somehow the entity is gone, fall back to full respawn
-        if (displayEntityId == -1 || displayEntity == null) {
-            despawn(players);
-            spawn(players);
+        if (!spawned) {
+            despawn(requested);
+            spawn(requested);
             return;
         }
+        if (world == null || blockState == null) return;
 
-        // Apply our high-level state to the existing NMS entity
-        applySettingsToDisplay(displayEntity, interpolationDurationTicks);
+        // The sent state is shared by all viewers: whoever was spawned after update(...)
+        // received the old state and needs this diff as well
+        Collection<Player> players = withCurrentViewers(requested);
 
-        // Send metadata/transform updates to viewers
-        DisplayPackets.update(displayEntity, players);
-    }
+        boolean positionChanged = x != flushedX || y != flushedY || z != flushedZ;
 
-    // ------------------------------------------------------------------------
-    // NMS construction for BlockDisplay (visual)
-    // ------------------------------------------------------------------------
+        // In TRANSLATION mode the entity only follows once the offset gets too large
+        boolean teleport = false;
+        if (x != sentX || y != sentY || z != sentZ) {
+            teleport = moveMode == MoveMode.TELEPORT
+                    || Math.abs(x - sentX) > MAX_TRANSLATION_OFFSET
+                    || Math.abs(y - sentY) > MAX_TRANSLATION_OFFSET
+                    || Math.abs(z - sentZ) > MAX_TRANSLATION_OFFSET;
+        }
+        if (teleport) {
+            rememberSentPosition();
+        }
 
-    /**
-     * Build the underlying NMS BlockDisplay with the current settings.
-     * Does not send any packets or register the node.
-     */
-    public Display.BlockDisplay createDisplayNmsEntity() {
-        if (location == null || location.getWorld() == null) return null;
-        if (material == null || !material.isBlock()) return null;
+        // Diff our high-level state against what the client already has
+        List<DataValue<?>> data = new ArrayList<>(5);
+        applySettingsToDisplay(data, interpolationDurationTicks, interpolationDelayTicks);
+
+        // The teleport glides as long as the transformation does, so a re-base
+        // (entity jumps, translation jumps back) looks like one continuous move
+        if (teleport && interpolationDurationTicks != sentPosRotInterpolationDuration) {
+            sentPosRotInterpolationDuration = interpolationDurationTicks;
+            data.add(DisplayEntityData.posRotInterpolationDuration(interpolationDurationTicks));
+        }
 
-        ServerLevel nmsWorld = ((CraftWorld) location.getWorld()).getHandle();
-        Display.BlockDisplay nmsDisplay =
-                new Display.BlockDisplay(EntityType.BLOCK_DISPLAY, nmsWorld);
+        // Send only changed metadata (+ teleport if the entity moved) to viewers
+        DisplayPackets.update(displayEntityId, teleport, sentX, sentY, sentZ, data, players);
 
-        // Initial configuration (no interpolation on initial spawn)
-        applySettingsToDisplay(nmsDisplay, 0);
-        return nmsDisplay;
+        if (positionChanged) {
+            flushedX = x;
+            flushedY = y;
+            flushedZ = z;
+        }
+
+        if (hitboxEntityId != -1) {
+            List<DataValue<?>> hitboxData = new ArrayList<>(2);
+            applySettingsToHitbox(hitboxData);
+            // Interactions cannot interpolate; hitbox y depends on its height, so a resize also needs a teleport
+            boolean hitboxMoved = positionChanged || !hitboxData.isEmpty();
+            List<Player> hitboxPlayers = hitboxViewersOf(players);
+            if (!hitboxPlayers.isEmpty()) {
+                DisplayPackets.update(hitboxEntityId, hitboxMoved, x, hitboxY(y, sentHitboxHeight), z, hitboxData, hitboxPlayers);
+            }
+        }
+
+        if (positionChanged) {
+            ViewRegistry.onMoved(this);
+        }
+        if (positionChanged || !data.isEmpty()) {
+            HitboxTracker.onChanged(this);
+            RaycastIndex.onChanged(this);
+        }
     }
 
-    /**
-     * Apply current BlockDisplayNode state to an existing NMS BlockDisplay.
-     * Used for both initial spawn and later updates.
-     */
-    private void applySettingsToDisplay(Display.BlockDisplay nmsDisplay, int interpolationDurationTicks) {
-        if (location == null || location.getWorld() == null) return;
-        if (material == null || !material.isBlock()) return;
+    private Collection<Player> withCurrentViewers(Collection<Player> requested) {
+        Set<Player> out = new LinkedHashSet<>(requested);
+        for (UUID uuid : viewers) {
+            Player p = Bukkit.getPlayer(uuid);
+            if (p != null) out.add(p);
+        }
+        return out;
+    }
 
-        // World position
-        nmsDisplay.setPos(location.getX(), location.getY(), location.getZ());
+    private List<Player> hitboxViewersOf(Collection<Player> players) {
+        if (hitboxViewers.isEmpty()) return List.of();
 
-        // Blockstate from Material
-        CraftBlockData cbd = (CraftBlockData) material.createBlockData();
-        nmsDisplay.setBlockState(cbd.getState());
+        List<Player> out = new ArrayList<>(Math.min(players.size(), hitboxViewers.size()));
+        for (Player p : players) {
+            if (p != null && hitboxViewers.contains(p.getUniqueId())) out.add(p);
+        }
+        return out;
+    }
 
-        // No billboard (no facing-to-player)
-        nmsDisplay.setBillboardConstraints(Display.BillboardConstraints.FIXED);
+    // ------------------------------------------------------------------------
+    // Entity data for BlockDisplay (visual)
+    // ------------------------------------------------------------------------
 
-        // Euler (deg, YXZ) → Quaternion
-        Quaternionf rotQ = DisplayMath.eulerToQuaternion(rotationEulerDeg);
+    /**
+     * Append every display data value that differs from what was last sent
+     * and remember the new values as sent.
+     * Used for both initial spawn (after resetSentState) and later updates.
+     */
+    private void applySettingsToDisplay(List<DataValue<?>> out, int interpolationDurationTicks, int interpolationDelayTicks) {
+        long start = System.nanoTime();
 
-        // Half-extents in local space
-        Vector3f half = new Vector3f(scale).mul(0.5f);
+        // Animation pose on top of the configured transformation
+        Vector3f scale = SCALE_SCRATCH.set(this.scale).mul(animScale);
+        Quaternionf rotation = animRotation.mul(this.rotation, ROTATION_SCRATCH);
 
         // Center at local origin even when rotated:
-        // translation + rotQ * half = 0  ⇒  translation = - rotQ * half
-        Vector3f translation = new Vector3f(half);
-        translation.rotate(rotQ).negate();
-
-        nmsDisplay.setTransformation(new Transformation(
-                translation,            // local translation
-                new Quaternionf(rotQ),  // rotation around local origin
-                new Vector3f(scale),    // local scale
-                new Quaternionf()       // right rotation = identity
-        ));
-
-        // Apply glow via Bukkit wrapper
-        org.bukkit.entity.BlockDisplay bukkitDisplay =
-                (org.bukkit.entity.BlockDisplay) nmsDisplay.getBukkitEntity();
-
-        if (!glowing) {
-            bukkitDisplay.setGlowing(false);
-            bukkitDisplay.setGlowColorOverride(null);
-        } else {
-            bukkitDisplay.setGlowing(true);
-            bukkitDisplay.setGlowColorOverride(glowColor);
+        // translation + rotation * half = 0  ⇒  translation = - rotation * half
+        // plus the distance to the entity position (TRANSLATION mode) and the animation offset
+        Vector3f translation = rotation
+                .transform(scale.x * 0.5f, scale.y * 0.5f, scale.z * 0.5f, TRANSLATION_SCRATCH)
+                .negate()
+                .add((float) (x - sentX), (float) (y - sentY), (float) (z - sentZ))
+                .add(animOffset);
+
+        boolean transformChanged = false;
+        if (!translation.equals(sentTranslation)) {
+            sentTranslation.set(translation);
+            out.add(DisplayEntityData.translation(translation));
+            transformChanged = true;
+        }
+        if (!scale.equals(sentScale)) {
+            sentScale.set(scale);
+            out.add(DisplayEntityData.scale(scale));
+            transformChanged = true;
+        }
+        if (!rotation.equals(sentRotation)) {
+            sentRotation.set(rotation);
+            out.add(DisplayEntityData.leftRotation(rotation));
+            transformChanged = true;
         }
 
-        // Built-in interpolation (1.20+ Display API)
-        if (interpolationDurationTicks > 0) {
+        // Built-in interpolation (1.20+ Display API), 0 duration disables interpolation
+        if (interpolationDurationTicks != sentInterpolationDuration) {
+            sentInterpolationDuration = interpolationDurationTicks;
+            out.add(DisplayEntityData.transformationInterpolationDuration(interpolationDurationTicks));
+        }
+        if (transformChanged && (interpolationDurationTicks > 0 || interpolationDelayTicks > 0)) {
+            // Restarts the client-side interpolation towards the new transformation
+            out.add(DisplayEntityData.interpolationDelay(interpolationDelayTicks));
+        }
 
-            nmsDisplay.setTransformationInterpolationDuration(interpolationDurationTicks);
-            nmsDisplay.setTransformationInterpolationDelay(0);
-        } else {
-            // 0 duration disables interpolation
-            nmsDisplay.setTransformationInterpolationDuration(0);
-            nmsDisplay.setTransformationInterpolationDelay(0);
+        if (blockState != sentBlockState) {
+            sentBlockState = blockState;
+            out.add(DisplayEntityData.blockState(blockState));
         }
+
+        byte flags = glowing ? DisplayEntityData.FLAG_GLOWING : 0;
+        if (flags != sentFlags) {
+            sentFlags = flags;
+            out.add(DisplayEntityData.sharedFlags(flags));
+        }
+
+        int glow = glowing ? glowColor : -1;
+        if (glow != sentGlowColor) {
+            sentGlowColor = glow;
+            out.add(DisplayEntityData.glowColorOverride(glow));
+        }
+
+        RenderMetrics.applySettingsNanos(System.nanoTime() - start);
     }
 
     // ------------------------------------------------------------------------
-    // NMS construction for hitbox (Interaction), packet-only
+    // Entity data for hitbox (Interaction), packet-only
     // ------------------------------------------------------------------------
 
     /**
-     * Build a packet-only Interaction entity to act as a click hitbox.
-     * The client will see it as an entity (for raytracing) but we never
-     * register it in the world server-side – only via packets.
+     * Append hitbox size values that differ from what was last sent.
+     * The client sees the Interaction as an entity (for raytracing), the server never does.
      *
      * The hitbox size is derived from the BlockDisplay scale to avoid
      * overlapping hitboxes and mis-clicks.
      */
-    private Interaction createHitboxNmsEntity() {
-        if (location == null || location.getWorld() == null) return null;
+    private void applySettingsToHitbox(List<DataValue<?>> out) {
+        float width  = hitboxWidth();
+        float height = hitboxHeight();
+
+        if (width != sentHitboxWidth) {
+            sentHitboxWidth = width;
+            out.add(DisplayEntityData.interactionWidth(width));
+        }
+        if (height != sentHitboxHeight) {
+            sentHitboxHeight = height;
+            out.add(DisplayEntityData.interactionHeight(height));
+        }
+    }
 
-        ServerLevel nmsWorld = ((CraftWorld) location.getWorld()).getHandle();
+    private float hitboxWidth() {
+        return Math.max(0.1f, scale.x);
+    }
 
-        float width  = Math.max(0.1f, scale.x);
-        float height = Math.max(0.1f, scale.y);
+    private float hitboxHeight() {
+        return Math.max(0.1f, scale.y);
+    }
 
-        Interaction hitbox = new Interaction(EntityType.INTERACTION, nmsWorld);
+    /**
+     * Interaction-BB geht typischerweise von (x, y, z) nach oben.
+     * Wir wollen, dass der Mittelpunkt der BB bei der Display-Mitte liegt.
+     */
+    private static double hitboxY(double centerY, float height) {
+        return centerY - (height / 2.0f);
+    }
 
-        // Interaction-BB geht typischerweise von (x, y, z) nach oben.
-        // Wir wollen, dass der Mittelpunkt der BB bei der Display-Mitte liegt.
-        double x = location.getX();
-        double y = location.getY() - (height / 2.0f); // center on display
-        double z = location.getZ();
+    // ------------------------------------------------------------------------
+    // Change tracking helpers
+    // ------------------------------------------------------------------------
 
-        hitbox.setPos(x, y, z);
+    /** Reset the sent state to the client-side entity defaults. */
+    private void resetSentState() {
+        sentTranslation.zero();
+        sentScale.set(1f, 1f, 1f);
+        sentRotation.identity();
+        sentBlockState = CLIENT_DEFAULT_BLOCK_STATE;
+        sentFlags = 0;
+        sentGlowColor = -1;
+        sentInterpolationDuration = 0;
+        sentPosRotInterpolationDuration = 0;
+    }
 
-        // je nach NMS-Version ggf. setWidth/setHeight statt setInteractionWidth/Height
-        hitbox.setWidth(width);
-        hitbox.setHeight(height);
+    /** Append the non-default values of the sent state (for viewers joining a spawned node). */
+    private void appendSentState(List<DataValue<?>> out) {
+        if (!sentTranslation.equals(0f, 0f, 0f)) {
+            out.add(DisplayEntityData.translation(sentTranslation));
+        }
+        if (!sentScale.equals(1f, 1f, 1f)) {
+            out.add(DisplayEntityData.scale(sentScale));
+        }
+        if (sentRotation.x != 0f || sentRotation.y != 0f || sentRotation.z != 0f || sentRotation.w != 1f) {
+            out.add(DisplayEntityData.leftRotation(sentRotation));
+        }
+        if (sentInterpolationDuration != 0) {
+            out.add(DisplayEntityData.transformationInterpolationDuration(sentInterpolationDuration));
+        }
+        if (sentPosRotInterpolationDuration != 0) {
+            out.add(DisplayEntityData.posRotInterpolationDuration(sentPosRotInterpolationDuration));
+        }
+        if (sentBlockState != CLIENT_DEFAULT_BLOCK_STATE) {
+            out.add(DisplayEntityData.blockState(sentBlockState));
+        }
+        if (sentFlags != 0) {
+            out.add(DisplayEntityData.sharedFlags(sentFlags));
+        }
+        if (sentGlowColor != -1) {
+            out.add(DisplayEntityData.glowColorOverride(sentGlowColor));
+        }
+    }
 
-        hitbox.setInvulnerable(true);
-        hitbox.noPhysics = true;
+    private void appendSentHitboxState(List<DataValue<?>> out) {
+        if (sentHitboxWidth != DisplayEntityData.DEFAULT_INTERACTION_SIZE) {
+            out.add(DisplayEntityData.interactionWidth(sentHitboxWidth));
+        }
+        if (sentHitboxHeight != DisplayEntityData.DEFAULT_INTERACTION_SIZE) {
+            out.add(DisplayEntityData.interactionHeight(sentHitboxHeight));
+        }
+    }
 
-        return hitbox;
+    /** Entity (and rendered) position is the current position. */
+    private void rememberSentPosition() {
+        sentX = flushedX = x;
+        sentY = flushedY = y;
+        sentZ = flushedZ = z;
     }
 
     // ------------------------------------------------------------------------
-    // Static hook used by Netty packet listener
+    // Static hook used by the ClickQueue
     // ------------------------------------------------------------------------
 
     /**
-     * Called from the Netty handler when a ServerboundInteractPacket arrives.
+     * Called on the main thread for every queued ServerboundInteractPacket (see ClickQueue).
      * If the entity id matches one of our hitboxes, the click handler is fired.
      */
     public static void handlePacketClick(int entityId, Player player) {
-        BlockDisplayNode node = NODES_BY_HITBOX_ID.get(entityId);
+        handlePacketClick(entityId, player, ClickAction.INTERACT, EquipmentSlot.HAND, null, false);
+    }
+
+    /**
+     * Same as handlePacketClick(entityId, player), with the decoded interaction.
+     *
+     * @param hand     hand used, null for ATTACK
+     * @param position hit position relative to the hitbox, only for INTERACT_AT
+     */
+    public static void handlePacketClick(int entityId,
+                                         Player player,
+                                         ClickAction action,
+                                         EquipmentSlot hand,
+                                         Vector position,
+                                         boolean sneaking) {
+        BlockDisplayNode node = DisplayRegistry.hitboxOwner(entityId);
         if (node == null) return;
 
         if (node.clickHandler != null) {
-            node.clickHandler.accept(new ClickContext(player, node));
+            node.clickHandler.accept(new ClickContext(player, node, action, hand, position, sneaking));
         }
-        // hoverHandler could be triggered here for more complex logic if desired
+    }
+
+    /**
+     * Called on the main thread for a queued swing/use packet (see ClickQueue): the closest
+     * raycast-clickable node the player looks at gets the click, unless a block is in between.
+     * The context's position is the hit point relative to the node position.
+     */
+    static void handleRaycastClick(Player player, ClickAction action, EquipmentSlot hand) {
+        Location eye = player.getEyeLocation();
+        Vector dir = eye.getDirection();
+        NodeBvh.Hit hit = RaycastIndex.raycast(player, eye, dir, BlockDisplayNode::isRaycastClickable);
+        if (hit == null) return;
+
+        if (RaycastIndex.blocked(eye, dir, hit)) return;
+
+        BlockDisplayNode node = hit.node();
+        Vector position = RaycastIndex.relativeHit(eye, dir, hit);
+        node.clickHandler.accept(new ClickContext(player, node, action, hand, position, player.isSneaking()));
+    }
+
+    /** Called by the HoverTracker for HOVER_ENTER / HOVER_EXIT. */
+    void fireHover(ClickContext context) {
+        if (hoverHandler != null) hoverHandler.accept(context);
     }
 
     // ------------------------------------------------------------------------
     // Simple context object for click callbacks
     // ------------------------------------------------------------------------
 
+    /** Kind of interaction, as sent by the client. */
+    public enum ClickAction {
+        /** Left click. */
+        ATTACK,
+        /** Right click. */
+        INTERACT,
+        /** Right click with the exact hit position (sent by the client before INTERACT). */
+        INTERACT_AT,
+        /** The player started looking at the node (hover handler only). */
+        HOVER_ENTER,
+        /** The player stopped looking at the node, or it disappeared (hover handler only). */
+        HOVER_EXIT
+    }
+
     public static final class ClickContext {
         private final Player player;
         private final BlockDisplayNode node;
+        private final ClickAction action;
+        private final EquipmentSlot hand;
+        private final Vector position;
+        private final boolean sneaking;
 
         public ClickContext(Player player, BlockDisplayNode node) {
+            this(player, node, ClickAction.INTERACT, EquipmentSlot.HAND, null, false);
+        }
+
+        public ClickContext(Player player,
+                            BlockDisplayNode node,
+                            ClickAction action,
+                            EquipmentSlot hand,
+                            Vector position,
+                            boolean sneaking) {
             this.player = player;
             this.node = node;
+            this.action = action;
+            this.hand = hand;
+            this.position = position;
+            this.sneaking = sneaking;
         }
 
         public Player player() {
@@ -389,7 +1024,27 @@ public class BlockDisplayNode {
         public BlockDisplayNode node() {
             return node;
         }
-    }
-}
 
+        public ClickAction action() {
+            return action;
+        }
+
+        /** HAND or OFF_HAND; null for ATTACK and hover events. */
+        public EquipmentSlot hand() {
+            return hand;
+        }
+
+        /**
+         * Hit position relative to the hitbox (INTERACT_AT) or to the node position
+         * (HOVER_ENTER, ClickMode.RAYCAST clicks), otherwise null.
+         */
+        public Vector position() {
+            return position;
+        }
 
+        /** Whether the player was sneaking (secondary action). */
+        public boolean sneaking() {
+            return sneaking;
+        }
+    }
+}
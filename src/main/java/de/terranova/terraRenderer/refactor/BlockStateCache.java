@@ -0,0 +1,41 @@
+package de.terranova.terraRenderer.refactor;
+
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import org.bukkit.Material;
+import org.bukkit.craftbukkit.util.CraftMagicNumbers;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Shared Material -> default NMS BlockState lookup.
+ *
+ * Filled once for every block material, so resolving a node's block state
+ * never allocates a BlockData on the spawn/update hot path.
+ */
+public final class BlockStateCache {
+
+    private static final Map<Material, BlockState> STATES = new EnumMap<>(Material.class);
+
+    static {
+        for (Material material : Material.values()) {
+            if (material.isLegacy()) continue;
+
+            Block block = CraftMagicNumbers.getBlock(material);
+            if (block == null) continue;
+
+            STATES.put(material, block.defaultBlockState());
+        }
+    }
+
+    private BlockStateCache() {}
+
+    /**
+     * Returns the default block state of the given material,
+     * or null if the material is not a block.
+     */
+    public static BlockState get(Material material) {
+        return material == null ? null : STATES.get(material);
+    }
+}
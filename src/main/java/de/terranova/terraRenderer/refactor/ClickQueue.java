@@ -0,0 +1,225 @@
+package de.terranova.terraRenderer.refactor;
+
+import de.terranova.terraRenderer.refactor.BlockDisplayNode.ClickAction;
+import net.minecraft.network.protocol.game.ServerboundInteractPacket;
+import net.minecraft.network.protocol.game.ServerboundSwingPacket;
+import net.minecraft.network.protocol.game.ServerboundUseItemOnPacket;
+import net.minecraft.network.protocol.game.ServerboundUseItemPacket;
+import net.minecraft.world.InteractionHand;
+import net.minecraft.world.phys.Vec3;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.util.Vector;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Hands hitbox clicks from the Netty threads to the main thread.
+ *
+ * - offer(...) runs on the Netty thread: ids that are not one of our hitboxes are ignored,
+ *   clicks over MAX_CLICKS_PER_TICK per player or MAX_QUEUED in total are dropped, the rest
+ *   goes into a lock-free queue, so the I/O thread never waits
+ * - drain() runs once per tick on the main thread (DisplayTickListener, before nodes are
+ *   flushed): duplicate clicks of one player on the same node and with the same button are
+ *   merged, then the click handlers run, so they can safely change nodes and call
+ *   update(...). The first packet wins: for a right click that is INTERACT_AT (with the hit
+ *   position), and the INTERACT the client sends right after it is merged away; a left
+ *   click (ATTACK) in the same tick is kept
+ * - Swing and use-item packets are queued the same way for ClickMode.RAYCAST nodes (only
+ *   while such nodes exist); the node is found by a raycast when draining. A swing is only
+ *   a click if the previous one was more than a tick ago, holding the button on a block
+ *   swings every tick. One raycast click per player and tick, the first packet wins (the
+ *   client sends a use-item before the swing that follows it)
+ */
+public final class ClickQueue {
+
+    /** Clicks accepted per player and tick; more is spam (a normal click rate is 1-2). */
+    public static final int MAX_CLICKS_PER_TICK = 4;
+
+    /** Clicks waiting in total; protects the tick from a flood of many players. */
+    public static final int MAX_QUEUED = 4096;
+
+    private static final Queue<PendingClick> QUEUE = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger QUEUED = new AtomicInteger();
+
+    /** Hitbox id of queued raycast clicks (no entity involved). */
+    private static final int RAYCAST = -1;
+
+    /** Player UUID -> server tick of the last swing packet (debounce for held buttons). */
+    private static final Map<UUID, Integer> LAST_SWING = new ConcurrentHashMap<>();
+
+    /** Player UUID -> clicks accepted this tick (cleared on every drain). */
+    private static final Map<UUID, AtomicInteger> CLICKS_THIS_TICK = new ConcurrentHashMap<>();
+
+    private static final LongAdder DROPPED = new LongAdder();
+    private static final LongAdder MERGED = new LongAdder();
+
+    private ClickQueue() {}
+
+    private record PendingClick(Player player,
+                                int hitboxEntityId,
+                                ClickAction action,
+                                EquipmentSlot hand,
+                                Vector position,
+                                boolean sneaking) {}
+
+    /** Merge key; action is null for raycast clicks, INTERACT also stands for INTERACT_AT. */
+    private record ClickKey(UUID player, int hitboxEntityId, ClickAction action) {
+
+        static ClickKey of(PendingClick click) {
+            ClickAction action = click.hitboxEntityId() == RAYCAST ? null
+                    : click.action() == ClickAction.INTERACT_AT ? ClickAction.INTERACT
+                    : click.action();
+            return new ClickKey(click.player().getUniqueId(), click.hitboxEntityId(), action);
+        }
+    }
+
+    /**
+     * Queue a click on an entity. Safe to call from any thread.
+     * The packet is only decoded (action, hand, position) if it targets one of our hitboxes.
+     *
+     * @return false if the id is not a hitbox or the click was dropped
+     */
+    public static boolean offer(ServerboundInteractPacket packet, Player player) {
+        int entityId = packet.getEntityId();
+        if (!DisplayRegistry.isHitbox(entityId)) return false;
+
+        if (!accept(player)) return false;
+
+        QUEUE.add(decode(packet, player, entityId));
+        return true;
+    }
+
+    /** Queue a left click for ClickMode.RAYCAST nodes. Safe to call from any thread. */
+    public static boolean offer(ServerboundSwingPacket packet, Player player) {
+        if (!RaycastIndex.hasClickTargets() || packet.getHand() != InteractionHand.MAIN_HAND) return false;
+
+        // Held attack/mine button: the client swings every tick, only the first one counts
+        int tick = Bukkit.getCurrentTick();
+        Integer last = LAST_SWING.put(player.getUniqueId(), tick);
+        if (last != null && tick - last <= 1) return false;
+
+        return offerRaycast(player, ClickAction.ATTACK, null);
+    }
+
+    /** Queue a right click (into the air) for ClickMode.RAYCAST nodes. Safe to call from any thread. */
+    public static boolean offer(ServerboundUseItemPacket packet, Player player) {
+        if (!RaycastIndex.hasClickTargets()) return false;
+        return offerRaycast(player, ClickAction.INTERACT, slot(packet.getHand()));
+    }
+
+    /** Queue a right click (at a block) for ClickMode.RAYCAST nodes. Safe to call from any thread. */
+    public static boolean offer(ServerboundUseItemOnPacket packet, Player player) {
+        if (!RaycastIndex.hasClickTargets()) return false;
+        return offerRaycast(player, ClickAction.INTERACT, slot(packet.getHand()));
+    }
+
+    private static boolean offerRaycast(Player player, ClickAction action, EquipmentSlot hand) {
+        if (!accept(player)) return false;
+
+        // The eye position and sneaking are read on the main thread, when the ray is cast
+        QUEUE.add(new PendingClick(player, RAYCAST, action, hand, null, false));
+        return true;
+    }
+
+    /** Rate limits; true if the click may be queued (QUEUED is incremented then). */
+    private static boolean accept(Player player) {
+        AtomicInteger clicks = CLICKS_THIS_TICK.computeIfAbsent(player.getUniqueId(), uuid -> new AtomicInteger());
+        if (clicks.incrementAndGet() > MAX_CLICKS_PER_TICK) {
+            DROPPED.increment();
+            return false;
+        }
+        if (QUEUED.incrementAndGet() > MAX_QUEUED) {
+            QUEUED.decrementAndGet();
+            DROPPED.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private static PendingClick decode(ServerboundInteractPacket packet, Player player, int entityId) {
+        boolean sneaking = packet.isUsingSecondaryAction();
+        PendingClick[] out = new PendingClick[1];
+        packet.dispatch(new ServerboundInteractPacket.Handler() {
+            @Override
+            public void onInteraction(InteractionHand hand) {
+                out[0] = new PendingClick(player, entityId, ClickAction.INTERACT, slot(hand), null, sneaking);
+            }
+
+            @Override
+            public void onInteraction(InteractionHand hand, Vec3 location) {
+                Vector position = new Vector(location.x, location.y, location.z);
+                out[0] = new PendingClick(player, entityId, ClickAction.INTERACT_AT, slot(hand), position, sneaking);
+            }
+
+            @Override
+            public void onAttack() {
+                out[0] = new PendingClick(player, entityId, ClickAction.ATTACK, null, null, sneaking);
+            }
+        });
+        return out[0];
+    }
+
+    private static EquipmentSlot slot(InteractionHand hand) {
+        return hand == InteractionHand.OFF_HAND ? EquipmentSlot.OFF_HAND : EquipmentSlot.HAND;
+    }
+
+    /**
+     * Run the handlers of all queued clicks. Main thread, once per tick.
+     * Clicks arriving while draining are handled next tick.
+     */
+    public static void drain() {
+        CLICKS_THIS_TICK.clear();
+        if (!LAST_SWING.isEmpty()) {
+            int tick = Bukkit.getCurrentTick();
+            LAST_SWING.values().removeIf(last -> tick - last > 1);
+        }
+
+        int count = QUEUED.get();
+        if (count == 0) return;
+
+        Set<ClickKey> seen = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            PendingClick click = QUEUE.poll();
+            if (click == null) break;
+            QUEUED.decrementAndGet();
+
+            if (!click.player().isOnline()) continue;
+            if (!seen.add(ClickKey.of(click))) {
+                MERGED.increment();
+                continue;
+            }
+            try {
+                if (click.hitboxEntityId() == RAYCAST) {
+                    BlockDisplayNode.handleRaycastClick(click.player(), click.action(), click.hand());
+                } else {
+                    BlockDisplayNode.handlePacketClick(click.hitboxEntityId(), click.player(),
+                            click.action(), click.hand(), click.position(), click.sneaking());
+                }
+            } catch (RuntimeException e) {
+                // A broken handler must not take the rest of the tick with it
+                Bukkit.getLogger().log(Level.WARNING, "Click handler failed", e);
+            }
+        }
+    }
+
+    /** Clicks dropped by the rate limits since startup. */
+    public static long getDroppedClicks() {
+        return DROPPED.sum();
+    }
+
+    /** Duplicate clicks merged since startup. */
+    public static long getMergedClicks() {
+        return MERGED.sum();
+    }
+}
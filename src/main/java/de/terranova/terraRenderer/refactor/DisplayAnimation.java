@@ -0,0 +1,148 @@
+package de.terranova.terraRenderer.refactor;
+
+import org.joml.Quaternionf;
+import org.joml.Quaternionfc;
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keyframe timeline for BlockDisplayNodes and DisplayGroups, played by the DisplayAnimator.
+ *
+ * Every keyframe is sent as one entity-data update with its duration as interpolation
+ * duration and its delay as interpolation delay; the client tweens between the frames.
+ * A pulsing marker therefore costs one packet per keyframe instead of one per tick.
+ *
+ * Keyframe poses are relative to the node's own transformation:
+ * - offset: translation in blocks (the entity itself does not move)
+ * - scale: factors on the node scale
+ * - rotation: applied around the display center before the node rotation
+ *
+ * The client interpolates rotations along the shortest path, so consecutive keyframes
+ * should differ by less than 180°.
+ */
+public class DisplayAnimation {
+
+    private final List<Keyframe> keyframes = new ArrayList<>();
+    private boolean loop;
+
+    /** Rotating marker: full turn around the axis every periodTicks (three 120° keyframes, looped). */
+    public static DisplayAnimation spin(Vector3fc axis, int periodTicks) {
+        Vector3f normAxis = new Vector3f(axis).normalize();
+        int step = Math.max(1, periodTicks / 3);
+        DisplayAnimation animation = new DisplayAnimation().loop(true);
+        for (int i = 1; i <= 3; i++) {
+            animation.keyframe(Keyframe.of(step)
+                    .rotation(new Quaternionf().rotationAxis((float) (i * 2 * Math.PI / 3), normAxis)));
+        }
+        return animation;
+    }
+
+    /** Pulsing marker: grow to factor and back to normal size every periodTicks (looped). */
+    public static DisplayAnimation pulse(float factor, int periodTicks) {
+        int half = Math.max(1, periodTicks / 2);
+        return new DisplayAnimation()
+                .keyframe(Keyframe.of(half).scale(factor, factor, factor))
+                .keyframe(Keyframe.of(half))
+                .loop(true);
+    }
+
+    public DisplayAnimation keyframe(Keyframe keyframe) {
+        if (keyframe != null) {
+            keyframes.add(keyframe);
+        }
+        return this;
+    }
+
+    /** Restart with the first keyframe after the last one. */
+    public DisplayAnimation loop(boolean loop) {
+        this.loop = loop;
+        return this;
+    }
+
+    public List<Keyframe> getKeyframes() {
+        return Collections.unmodifiableList(keyframes);
+    }
+
+    public boolean isLoop() {
+        return loop;
+    }
+
+    /** Ticks of one pass through all keyframes. */
+    public int getLengthTicks() {
+        int length = 0;
+        for (Keyframe keyframe : keyframes) {
+            length += keyframe.delay + keyframe.duration;
+        }
+        return length;
+    }
+
+    // ------------------------------------------------------------------------
+    // Keyframe
+    // ------------------------------------------------------------------------
+
+    /**
+     * Target pose, reached duration ticks after the client waited delay ticks.
+     * Unset parts stay at their neutral value (no offset, scale 1, no rotation).
+     */
+    public static final class Keyframe {
+        private final int duration;
+        private int delay;
+        private final Vector3f offset = new Vector3f();
+        private final Vector3f scale = new Vector3f(1f, 1f, 1f);
+        private final Quaternionf rotation = new Quaternionf();
+
+        private Keyframe(int duration) {
+            this.duration = Math.max(0, duration);
+        }
+
+        /** @param durationTicks client-side interpolation time towards this pose */
+        public static Keyframe of(int durationTicks) {
+            return new Keyframe(durationTicks);
+        }
+
+        /** Ticks the client holds the previous pose before interpolating towards this one. */
+        public Keyframe delay(int ticks) {
+            this.delay = Math.max(0, ticks);
+            return this;
+        }
+
+        public Keyframe offset(float x, float y, float z) {
+            this.offset.set(x, y, z);
+            return this;
+        }
+
+        public Keyframe scale(float x, float y, float z) {
+            this.scale.set(x, y, z);
+            return this;
+        }
+
+        public Keyframe rotation(Quaternionfc rotation) {
+            this.rotation.set(rotation);
+            return this;
+        }
+
+        public int duration() {
+            return duration;
+        }
+
+        public int delay() {
+            return delay;
+        }
+
+        public Vector3fc offset() {
+            return offset;
+        }
+
+        public Vector3fc scale() {
+            return scale;
+        }
+
+        public Quaternionfc rotation() {
+            return rotation;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package de.terranova.terraRenderer.refactor;
+
+import de.terranova.terraRenderer.refactor.DisplayAnimation.Keyframe;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plays DisplayAnimations.
+ *
+ * Nothing happens between keyframes: once a keyframe's packet is out, the next one is only
+ * due after its delay + duration have passed, and the client interpolates in the meantime.
+ * Keyframes are sent through the RenderScheduler like normal updates, to the current
+ * viewers of each node. A playback ends by itself (loops included) once none of its nodes
+ * is spawned or tracked by the ViewRegistry anymore, so despawned nodes are not kept alive.
+ *
+ * A node plays one animation at a time: play(...) stops every playback that animates any
+ * of its nodes (without reset, the new animation starts from the current pose).
+ *
+ * Main thread only (driven by DisplayTickListener).
+ */
+public final class DisplayAnimator {
+
+    private static final List<Playback> PLAYING = new ArrayList<>();
+
+    /** Node -> the playback animating it. */
+    private static final Map<BlockDisplayNode, Playback> PLAYING_BY_NODE = new IdentityHashMap<>();
+
+    private static long currentTick;
+
+    private DisplayAnimator() {}
+
+    /**
+     * Play an animation on a single node, starting with the next tick. Replaces the
+     * playback the node is part of, if any.
+     */
+    public static Playback play(BlockDisplayNode node, DisplayAnimation animation) {
+        List<BlockDisplayNode> nodes = new ArrayList<>(1);
+        nodes.add(node);
+        return start(new Playback(animation, nodes, false, 0d, 0d, 0d));
+    }
+
+    /**
+     * Play an animation on all nodes of a group, rotating and scaling them around the
+     * group's anchor location (or the center of its nodes if it has no anchor).
+     * Keyframe scales are applied in each node's own space, so use uniform scales for
+     * groups with rotated nodes. Replaces the playbacks any of the nodes is part of.
+     */
+    public static Playback play(DisplayGroup group, DisplayAnimation animation) {
+        group.applyAnchorIfNeeded();
+
+        List<BlockDisplayNode> nodes = new ArrayList<>(group.nodes);
+        double px = 0d, py = 0d, pz = 0d;
+        if (group.anchorLocation != null) {
+            Location a = group.anchorLocation;
+            px = a.getX();
+            py = a.getY();
+            pz = a.getZ();
+        } else if (!nodes.isEmpty()) {
+            for (BlockDisplayNode node : nodes) {
+                px += node.x();
+                py += node.y();
+                pz += node.z();
+            }
+            px /= nodes.size();
+            py /= nodes.size();
+            pz /= nodes.size();
+        }
+        return start(new Playback(animation, nodes, true, px, py, pz));
+    }
+
+    /**
+     * Advance all playbacks and send the keyframes that are due. Called once per tick
+     * before the RenderScheduler is flushed.
+     */
+    public static void tick() {
+        currentTick++;
+        if (PLAYING.isEmpty()) return;
+
+        Iterator<Playback> it = PLAYING.iterator();
+        while (it.hasNext()) {
+            Playback playback = it.next();
+            if (playback.stopped) {
+                it.remove();
+                release(playback);
+                continue;
+            }
+            if (currentTick < playback.nextKeyframeTick) continue;
+
+            if (!playback.advance()) {
+                playback.stopped = true;
+                it.remove();
+                release(playback);
+            }
+        }
+    }
+
+    /** Stop and drop every playback (registry teardown). */
+    static void clear() {
+        for (Playback playback : PLAYING) {
+            playback.stopped = true;
+        }
+        PLAYING.clear();
+        PLAYING_BY_NODE.clear();
+    }
+
+    private static Playback start(Playback playback) {
+        if (playback.animation.getKeyframes().isEmpty()) {
+            playback.stopped = true;
+            return playback;
+        }
+
+        // Two timelines on one node would overwrite each other's pose on every keyframe
+        for (BlockDisplayNode node : playback.nodes) {
+            Playback previous = PLAYING_BY_NODE.put(node, playback);
+            if (previous != null) previous.stopped = true;
+        }
+
+        playback.nextKeyframeTick = currentTick + 1;
+        PLAYING.add(playback);
+        return playback;
+    }
+
+    /** Drop the node entries of a finished playback (those not taken over by another one). */
+    private static void release(Playback playback) {
+        for (BlockDisplayNode node : playback.nodes) {
+            PLAYING_BY_NODE.remove(node, playback);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Playback
+    // ------------------------------------------------------------------------
+
+    public static final class Playback {
+        private final DisplayAnimation animation;
+        private final List<BlockDisplayNode> nodes;
+        /** Groups pose around a shared pivot, single nodes around their own center. */
+        private final boolean group;
+        private final double pivotX, pivotY, pivotZ;
+
+        private int nextKeyframe;
+        private long nextKeyframeTick;
+        private boolean stopped;
+
+        // Scratch for group poses
+        private final Vector3f relative = new Vector3f();
+        private final Vector3f offset = new Vector3f();
+
+        private Playback(DisplayAnimation animation,
+                         List<BlockDisplayNode> nodes,
+                         boolean group,
+                         double pivotX, double pivotY, double pivotZ) {
+            this.animation = animation;
+            this.nodes = nodes;
+            this.group = group;
+            this.pivotX = pivotX;
+            this.pivotY = pivotY;
+            this.pivotZ = pivotZ;
+        }
+
+        /**
+         * Stop after the current keyframe. With reset the nodes snap back to their
+         * pose without animation.
+         */
+        public void stop(boolean reset) {
+            stopped = true;
+            if (!reset) return;
+
+            for (BlockDisplayNode node : nodes) {
+                node.resetAnimationPose();
+                node.update(0);
+            }
+        }
+
+        public boolean isRunning() {
+            return !stopped;
+        }
+
+        /** Send the next keyframe. @return false when the animation is finished or its nodes are gone */
+        private boolean advance() {
+            if (!anyNodeAlive()) return false;
+
+            List<Keyframe> keyframes = animation.getKeyframes();
+            if (nextKeyframe >= keyframes.size()) {
+                if (!animation.isLoop()) return false;
+                nextKeyframe = 0;
+            }
+
+            Keyframe keyframe = keyframes.get(nextKeyframe++);
+            for (BlockDisplayNode node : nodes) {
+                applyPose(node, keyframe);
+
+                List<Player> viewers = node.getViewers();
+                if (!viewers.isEmpty()) {
+                    node.update(viewers, keyframe.duration(), keyframe.delay());
+                }
+            }
+
+            // At least one tick per keyframe, otherwise a zero-length loop would spin every tick
+            nextKeyframeTick = currentTick + Math.max(1, keyframe.delay() + keyframe.duration());
+            return true;
+        }
+
+        /** Spawned, or culled but respawned by the ViewRegistry when a viewer comes close. */
+        private boolean anyNodeAlive() {
+            for (BlockDisplayNode node : nodes) {
+                if (node.isSpawned() || ViewRegistry.isTracked(node)) return true;
+            }
+            return false;
+        }
+
+        private void applyPose(BlockDisplayNode node, Keyframe keyframe) {
+            if (!group) {
+                node.animationPose(keyframe.offset(), keyframe.scale(), keyframe.rotation());
+                return;
+            }
+
+            // Group: move the node center around the pivot, expressed as extra offset
+            // offset = rotation * (scale * relative) - relative + keyframe offset
+            relative.set((float) (node.x() - pivotX), (float) (node.y() - pivotY), (float) (node.z() - pivotZ));
+            keyframe.rotation().transform(offset.set(relative).mul(keyframe.scale()))
+                    .sub(relative)
+                    .add(keyframe.offset());
+
+            node.animationPose(offset, keyframe.scale(), keyframe.rotation());
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package de.terranova.terraRenderer.refactor;
+
+import net.minecraft.network.syncher.SynchedEntityData.DataValue;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.joml.Quaternionf;
+import org.joml.Quaternionfc;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.WeakHashMap;
+
+/**
+ * Structure-of-arrays container for large packet-only BlockDisplay visualizations
+ * (claim maps, heat grids, ...).
+ *
+ * Instead of one BlockDisplayNode object graph per element, every element is a slot in
+ * primitive arrays (entity id, position, scale, rotation, block-state id), roughly 60 bytes
+ * per element. Spawning, transform updates and removal work on the whole batch.
+ *
+ * - Setters only change the arrays and mark the slot dirty
+ * - flush(...) sends one update per dirty slot (teleport only if the position changed);
+ *   elements added since the batch was spawned are spawned for the current viewers only
+ * - despawn(...) removes all entities with a single packet
+ *
+ * Not thread-safe; use from the main thread and flush at most once per tick.
+ */
+public class DisplayBatch {
+
+    private static final byte DIRTY_POSITION = 1;
+    private static final byte DIRTY_TRANSFORM = 2;
+    private static final byte DIRTY_BLOCK = 4;
+    /** Added after the batch was spawned; not yet sent to the current viewers. */
+    private static final byte UNSPAWNED = 8;
+
+    /** Batches with viewers, so quitting / world-changing players can be dropped (weak keys). */
+    private static final Set<DisplayBatch> SHOWN = Collections.newSetFromMap(new WeakHashMap<>());
+
+    private final World world;
+    private int size;
+
+    private int[] entityIds;
+    /** x, y, z per slot. */
+    private double[] positions;
+    /** x, y, z per slot. */
+    private float[] scales;
+    /** x, y, z, w per slot. */
+    private float[] rotations;
+    /** Block.getId(state) per slot. */
+    private int[] blockStateIds;
+    private byte[] dirty;
+
+    /** Glow color override (ARGB) of the whole batch, -1 = no glow. */
+    private int glowColor = -1;
+
+    private final Set<UUID> viewers = new HashSet<>();
+
+    // Scratch for transformation math
+    private final Quaternionf rotationScratch = new Quaternionf();
+    private final Vector3f vectorScratch = new Vector3f();
+
+    public DisplayBatch(World world, int initialCapacity) {
+        this.world = world;
+        int capacity = Math.max(16, initialCapacity);
+        this.entityIds = new int[capacity];
+        this.positions = new double[capacity * 3];
+        this.scales = new float[capacity * 3];
+        this.rotations = new float[capacity * 4];
+        this.blockStateIds = new int[capacity];
+        this.dirty = new byte[capacity];
+    }
+
+    // ------------------------------------------------------------------------
+    // Slots
+    // ------------------------------------------------------------------------
+
+    /**
+     * Add an element (unrotated, centered at x/y/z). Current viewers receive only the new
+     * element, with the next flush(...) or spawn(...).
+     *
+     * @return the slot index
+     */
+    public int add(double x, double y, double z, float sx, float sy, float sz, Material material) {
+        return add(x, y, z, sx, sy, sz, BlockStateCache.get(material));
+    }
+
+    public int add(double x, double y, double z, float sx, float sy, float sz, BlockState state) {
+        ensureCapacity(size + 1);
+
+        int i = size++;
+        entityIds[i] = Entity.nextEntityId();
+        positions[i * 3] = x;
+        positions[i * 3 + 1] = y;
+        positions[i * 3 + 2] = z;
+        scales[i * 3] = sx;
+        scales[i * 3 + 1] = sy;
+        scales[i * 3 + 2] = sz;
+        rotations[i * 4] = 0f;
+        rotations[i * 4 + 1] = 0f;
+        rotations[i * 4 + 2] = 0f;
+        rotations[i * 4 + 3] = 1f;
+        blockStateIds[i] = Block.getId(state == null ? BlockStateCache.get(Material.BARRIER) : state);
+        dirty[i] = viewers.isEmpty() ? 0 : UNSPAWNED;
+        return i;
+    }
+
+    public void setPosition(int i, double x, double y, double z) {
+        checkIndex(i);
+        positions[i * 3] = x;
+        positions[i * 3 + 1] = y;
+        positions[i * 3 + 2] = z;
+        dirty[i] |= DIRTY_POSITION;
+    }
+
+    public void setScale(int i, float sx, float sy, float sz) {
+        checkIndex(i);
+        scales[i * 3] = sx;
+        scales[i * 3 + 1] = sy;
+        scales[i * 3 + 2] = sz;
+        dirty[i] |= DIRTY_TRANSFORM;
+    }
+
+    public void setRotation(int i, Quaternionfc rotation) {
+        checkIndex(i);
+        rotations[i * 4] = rotation.x();
+        rotations[i * 4 + 1] = rotation.y();
+        rotations[i * 4 + 2] = rotation.z();
+        rotations[i * 4 + 3] = rotation.w();
+        dirty[i] |= DIRTY_TRANSFORM;
+    }
+
+    public void setBlockState(int i, BlockState state) {
+        checkIndex(i);
+        if (state == null) return;
+        blockStateIds[i] = Block.getId(state);
+        dirty[i] |= DIRTY_BLOCK;
+    }
+
+    public void setMaterial(int i, Material material) {
+        setBlockState(i, BlockStateCache.get(material));
+    }
+
+    /** Enable glow for all elements (0xRRGGBB); applies with the next spawn. */
+    public DisplayBatch glow(int rgb) {
+        this.glowColor = 0xFF000000 | (rgb & 0xFFFFFF);
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getEntityId(int i) {
+        checkIndex(i);
+        return entityIds[i];
+    }
+
+    // ------------------------------------------------------------------------
+    // Bulk lifecycle
+    // ------------------------------------------------------------------------
+
+    /**
+     * Spawn every element for the given players. Players that already view the batch are
+     * skipped; they only get the elements added since (for all current viewers).
+     */
+    public void spawn(Collection<Player> players) {
+        if (world == null || players == null || players.isEmpty()) return;
+
+        spawnAdded();
+
+        List<Player> joining = new ArrayList<>(players.size());
+        for (Player p : players) {
+            if (p != null && p.isOnline() && !viewers.contains(p.getUniqueId())) joining.add(p);
+        }
+        if (joining.isEmpty()) return;
+
+        for (int i = 0; i < size; i++) {
+            spawnSlot(i, joining);
+        }
+
+        for (Player p : joining) {
+            viewers.add(p.getUniqueId());
+        }
+        SHOWN.add(this);
+    }
+
+    /** Spawn the elements added since the batch was spawned for every current viewer. */
+    private void spawnAdded() {
+        List<Player> players = null;
+        for (int i = 0; i < size; i++) {
+            if ((dirty[i] & UNSPAWNED) == 0) continue;
+            if (players == null) players = getViewers();
+
+            // Spawned with the current state, nothing else left to send
+            dirty[i] = 0;
+            if (!players.isEmpty()) spawnSlot(i, players);
+        }
+    }
+
+    private void spawnSlot(int i, Collection<Player> players) {
+        List<DataValue<?>> data = new ArrayList<>(6);
+        appendTransform(i, data);
+        data.add(DisplayEntityData.blockState(Block.stateById(blockStateIds[i])));
+        if (glowColor != -1) {
+            data.add(DisplayEntityData.sharedFlags(DisplayEntityData.FLAG_GLOWING));
+            data.add(DisplayEntityData.glowColorOverride(glowColor));
+        }
+
+        DisplayPackets.spawn(entityIds[i], EntityType.BLOCK_DISPLAY,
+                positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2], data, players);
+    }
+
+    /**
+     * Send the changes of all dirty elements to the current viewers.
+     *
+     * @param interpolationDurationTicks client-side interpolation of changed transformations
+     */
+    public void flush(int interpolationDurationTicks) {
+        spawnAdded();
+
+        List<Player> players = getViewers();
+        if (players.isEmpty()) {
+            Arrays.fill(dirty, 0, size, (byte) 0);
+            return;
+        }
+
+        for (int i = 0; i < size; i++) {
+            byte flags = dirty[i];
+            if (flags == 0) continue;
+            dirty[i] = 0;
+
+            List<DataValue<?>> data = new ArrayList<>(5);
+            if ((flags & DIRTY_TRANSFORM) != 0) {
+                appendTransform(i, data);
+                data.add(DisplayEntityData.transformationInterpolationDuration(interpolationDurationTicks));
+                data.add(DisplayEntityData.interpolationDelay(0));
+            }
+            if ((flags & DIRTY_BLOCK) != 0) {
+                data.add(DisplayEntityData.blockState(Block.stateById(blockStateIds[i])));
+            }
+
+            DisplayPackets.update(entityIds[i], (flags & DIRTY_POSITION) != 0,
+                    positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2], data, players);
+        }
+    }
+
+    /** Remove every element for the given players with a single packet. */
+    public void despawn(Collection<Player> players) {
+        if (players == null || players.isEmpty()) return;
+
+        DisplayPackets.remove(Arrays.copyOf(entityIds, size), players);
+        for (Player p : players) {
+            if (p != null) viewers.remove(p.getUniqueId());
+        }
+        if (viewers.isEmpty()) SHOWN.remove(this);
+    }
+
+    /**
+     * Remove one element for all viewers. The last element moves into the freed slot,
+     * so the index of that element changes to i.
+     */
+    public void remove(int i) {
+        checkIndex(i);
+        DisplayPackets.remove(new int[] { entityIds[i] }, getViewers());
+
+        int last = --size;
+        if (i != last) {
+            entityIds[i] = entityIds[last];
+            System.arraycopy(positions, last * 3, positions, i * 3, 3);
+            System.arraycopy(scales, last * 3, scales, i * 3, 3);
+            System.arraycopy(rotations, last * 4, rotations, i * 4, 4);
+            blockStateIds[i] = blockStateIds[last];
+            dirty[i] = dirty[last];
+        }
+    }
+
+    /** Despawn for every viewer and drop all elements. */
+    public void clear() {
+        despawn(getViewers());
+        viewers.clear();
+        SHOWN.remove(this);
+        size = 0;
+    }
+
+    /**
+     * Drop a player from every batch without sending packets (quit, world change: the
+     * client already dropped the entities). Main thread only.
+     */
+    public static void forget(Player player) {
+        if (player == null || SHOWN.isEmpty()) return;
+
+        UUID uuid = player.getUniqueId();
+        SHOWN.removeIf(batch -> batch.viewers.remove(uuid) && batch.viewers.isEmpty());
+    }
+
+    public List<Player> getViewers() {
+        List<Player> players = new ArrayList<>(viewers.size());
+        for (UUID uuid : viewers) {
+            Player p = Bukkit.getPlayer(uuid);
+            if (p != null) players.add(p);
+        }
+        return players;
+    }
+
+    // ------------------------------------------------------------------------
+    // Internals
+    // ------------------------------------------------------------------------
+
+    /** Translation (centering), scale and rotation of slot i, same layout as BlockDisplayNode. */
+    private void appendTransform(int i, List<DataValue<?>> out) {
+        float sx = scales[i * 3], sy = scales[i * 3 + 1], sz = scales[i * 3 + 2];
+        rotationScratch.set(rotations[i * 4], rotations[i * 4 + 1], rotations[i * 4 + 2], rotations[i * 4 + 3]);
+
+        // translation = - rotation * half
+        rotationScratch.transform(sx * 0.5f, sy * 0.5f, sz * 0.5f, vectorScratch).negate();
+        out.add(DisplayEntityData.translation(vectorScratch));
+
+        out.add(DisplayEntityData.scale(vectorScratch.set(sx, sy, sz)));
+        out.add(DisplayEntityData.leftRotation(rotationScratch));
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= entityIds.length) return;
+
+        int capacity = Math.max(required, entityIds.length + (entityIds.length >> 1));
+        entityIds = Arrays.copyOf(entityIds, capacity);
+        positions = Arrays.copyOf(positions, capacity * 3);
+        scales = Arrays.copyOf(scales, capacity * 3);
+        rotations = Arrays.copyOf(rotations, capacity * 4);
+        blockStateIds = Arrays.copyOf(blockStateIds, capacity);
+        dirty = Arrays.copyOf(dirty, capacity);
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for batch size " + size);
+        }
+    }
+}
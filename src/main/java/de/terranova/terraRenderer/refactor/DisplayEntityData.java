@@ -0,0 +1,102 @@
+package de.terranova.terraRenderer.refactor;
+
+import net.minecraft.network.syncher.EntityDataSerializers;
+import net.minecraft.network.syncher.SynchedEntityData.DataValue;
+import net.minecraft.world.level.block.state.BlockState;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+/**
+ * Entity-data (metadata) values for packet-only display entities, built straight
+ * from primitive fields instead of a SynchedEntityData of a real NMS entity.
+ *
+ * Indices follow the 1.21.4 protocol layout of Entity -> Display -> BlockDisplay
+ * and Entity -> Interaction.
+ */
+public final class DisplayEntityData {
+
+    // ------------------------------------------------------------------------
+    // Entity
+    // ------------------------------------------------------------------------
+
+    public static final int SHARED_FLAGS = 0;
+    public static final byte FLAG_GLOWING = 0x40;
+
+    // ------------------------------------------------------------------------
+    // Display
+    // ------------------------------------------------------------------------
+
+    public static final int INTERPOLATION_DELAY = 8;
+    public static final int TRANSFORMATION_INTERPOLATION_DURATION = 9;
+    public static final int POS_ROT_INTERPOLATION_DURATION = 10;
+    public static final int TRANSLATION = 11;
+    public static final int SCALE = 12;
+    public static final int LEFT_ROTATION = 13;
+    public static final int GLOW_COLOR_OVERRIDE = 22;
+
+    // ------------------------------------------------------------------------
+    // BlockDisplay
+    // ------------------------------------------------------------------------
+
+    public static final int BLOCK_STATE = 23;
+
+    // ------------------------------------------------------------------------
+    // Interaction
+    // ------------------------------------------------------------------------
+
+    public static final int INTERACTION_WIDTH = 8;
+    public static final int INTERACTION_HEIGHT = 9;
+
+    /** Client default of Interaction width/height. */
+    public static final float DEFAULT_INTERACTION_SIZE = 1f;
+
+    private DisplayEntityData() {}
+
+    public static DataValue<Byte> sharedFlags(byte flags) {
+        return new DataValue<>(SHARED_FLAGS, EntityDataSerializers.BYTE, flags);
+    }
+
+    public static DataValue<Integer> interpolationDelay(int ticks) {
+        return new DataValue<>(INTERPOLATION_DELAY, EntityDataSerializers.INT, ticks);
+    }
+
+    public static DataValue<Integer> transformationInterpolationDuration(int ticks) {
+        return new DataValue<>(TRANSFORMATION_INTERPOLATION_DURATION, EntityDataSerializers.INT, ticks);
+    }
+
+    public static DataValue<Integer> posRotInterpolationDuration(int ticks) {
+        return new DataValue<>(POS_ROT_INTERPOLATION_DURATION, EntityDataSerializers.INT, ticks);
+    }
+
+    /** The vector is copied, callers may keep mutating their instance. */
+    public static DataValue<Vector3f> translation(Vector3f translation) {
+        return new DataValue<>(TRANSLATION, EntityDataSerializers.VECTOR3, new Vector3f(translation));
+    }
+
+    /** The vector is copied, callers may keep mutating their instance. */
+    public static DataValue<Vector3f> scale(Vector3f scale) {
+        return new DataValue<>(SCALE, EntityDataSerializers.VECTOR3, new Vector3f(scale));
+    }
+
+    /** The quaternion is copied, callers may keep mutating their instance. */
+    public static DataValue<Quaternionf> leftRotation(Quaternionf rotation) {
+        return new DataValue<>(LEFT_ROTATION, EntityDataSerializers.QUATERNION, new Quaternionf(rotation));
+    }
+
+    /** ARGB color, -1 = no override. */
+    public static DataValue<Integer> glowColorOverride(int argb) {
+        return new DataValue<>(GLOW_COLOR_OVERRIDE, EntityDataSerializers.INT, argb);
+    }
+
+    public static DataValue<BlockState> blockState(BlockState state) {
+        return new DataValue<>(BLOCK_STATE, EntityDataSerializers.BLOCK_STATE, state);
+    }
+
+    public static DataValue<Float> interactionWidth(float width) {
+        return new DataValue<>(INTERACTION_WIDTH, EntityDataSerializers.FLOAT, width);
+    }
+
+    public static DataValue<Float> interactionHeight(float height) {
+        return new DataValue<>(INTERACTION_HEIGHT, EntityDataSerializers.FLOAT, height);
+    }
+}
@@ -9,6 +9,7 @@ import org.joml.Vector3f;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 public class DisplayGroup {
@@ -39,6 +40,14 @@ public class DisplayGroup {
         return this;
     }
 
+    /** View radius (blocks) of every node, used when the group is tracked by the ViewRegistry. */
+    public DisplayGroup viewRadius(double blocks) {
+        for (BlockDisplayNode node : nodes) {
+            node.viewRadius(blocks);
+        }
+        return this;
+    }
+
     public void spawn(Collection<Player> players) {
         applyAnchorIfNeeded();
         for (BlockDisplayNode node : nodes) {
@@ -53,12 +62,24 @@ public class DisplayGroup {
         }
     }
 
-    public void despawn(Collection<Player> players) {
+    /** Update every node for its current viewers (e.g. groups tracked by the ViewRegistry). */
+    public void update(int interpolationTicks) {
+        applyAnchorIfNeeded();
         for (BlockDisplayNode node : nodes) {
-            node.despawn(players);
+            node.update(interpolationTicks);
         }
     }
 
+    /** Despawn all nodes with one remove-entities packet. */
+    public void despawn(Collection<Player> players) {
+        BlockDisplayNode.despawnAll(nodes, players);
+    }
+
+    /** Read-only view of the nodes of this group. */
+    public List<BlockDisplayNode> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
     public int getPrimaryEntityId() {
         if (nodes.isEmpty()) return -1;
         return nodes.get(0).getDisplayEntityId();
@@ -74,7 +95,7 @@ public class DisplayGroup {
         Vector3f size = primary.getScale();
         Vector3f localOffset = anchor3D.offsetForSize(size);
 
-        Quaternionf rot = DisplayMath.eulerToQuaternion(primary.getRotationEulerDeg());
+        Quaternionf rot = primary.getRotation();
         Vector3f worldOffset = new Vector3f(localOffset).rotate(rot);
 
         Location currentAnchorPos = loc.clone().add(
@@ -3,28 +3,41 @@ package de.terranova.terraRenderer.refactor.DisplayGroups;
 import de.terranova.terraRenderer.refactor.Anchor.Anchor3D;
 import de.terranova.terraRenderer.refactor.BlockDisplayNode;
 import de.terranova.terraRenderer.refactor.DisplayGroup;
-import de.terranova.terraRenderer.refactor.DisplayMath;
-import org.bukkit.Color;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
-import org.joml.Quaternionf;
-import org.joml.Vector3f;
 
 import java.util.Collection;
 
 /**
  * A DisplayGroup representing a cuboid as 12 line segments (wireframe),
  * not a filled block.
+ *
+ * Edge geometry is computed into reused scratch vectors, so update(...) allocates
+ * nothing apart from the packets the nodes send.
+ * Edges move in MoveMode.TRANSLATION, so a resize is one interpolated data packet per edge.
  */
 public class DisplayCube extends DisplayGroup {
 
-    private Location from;
-    private Location to;
+    /**
+     * Corner pairs of the 12 edges. Corner index bits: 1 = max x, 2 = max y, 4 = max z
+     * (so 0 = c000, 3 = c110, 7 = c111).
+     */
+    private static final int[][] EDGES = {
+            // Bottom rectangle
+            {0, 1}, {1, 3}, {3, 2}, {2, 0},
+            // Top rectangle
+            {4, 5}, {5, 7}, {7, 6}, {6, 4},
+            // Vertical edges
+            {0, 4}, {1, 5}, {3, 7}, {2, 6}
+    };
+
+    private World world;
+    private double minX, minY, minZ;
+    private double maxX, maxY, maxZ;
     private Material material;
-    private boolean glowing;
-    private int glowColor;
-    private float thickness;
+    private final LineStyle style;
 
     public DisplayCube(Location from,
                        Location to,
@@ -40,102 +53,45 @@ public class DisplayCube extends DisplayGroup {
                        Material material,
                        boolean glowing,
                        int glowColor) {
-        this.from = from == null ? null : from.clone();
-        this.to = to == null ? null : to.clone();
         this.material = material;
-        this.glowing = glowing;
-        this.glowColor = glowColor;
-        this.thickness = thickness;
+        this.style = new LineStyle(thickness, glowing, glowColor);
 
+        setBounds(from, to);
         buildNodes();
     }
 
-    private void buildNodes() {
-        nodes.clear();
-        if (from == null || to == null) return;
-        if (!from.getWorld().equals(to.getWorld())) return;
-
-        double minX = Math.min(from.getX(), to.getX());
-        double minY = Math.min(from.getY(), to.getY());
-        double minZ = Math.min(from.getZ(), to.getZ());
-        double maxX = Math.max(from.getX(), to.getX());
-        double maxY = Math.max(from.getY(), to.getY());
-        double maxZ = Math.max(from.getZ(), to.getZ());
-
-        var world = from.getWorld();
-
-        Location c000 = new Location(world, minX, minY, minZ);
-        Location c100 = new Location(world, maxX, minY, minZ);
-        Location c010 = new Location(world, minX, maxY, minZ);
-        Location c110 = new Location(world, maxX, maxY, minZ);
-
-        Location c001 = new Location(world, minX, minY, maxZ);
-        Location c101 = new Location(world, maxX, minY, maxZ);
-        Location c011 = new Location(world, minX, maxY, maxZ);
-        Location c111 = new Location(world, maxX, maxY, maxZ);
-
-        // Bottom rectangle
-        addEdge(c000, c100); // 0
-        addEdge(c100, c110); // 1
-        addEdge(c110, c010); // 2
-        addEdge(c010, c000); // 3
-
-        // Top rectangle
-        addEdge(c001, c101); // 4
-        addEdge(c101, c111); // 5
-        addEdge(c111, c011); // 6
-        addEdge(c011, c001); // 7
-
-        // Vertical edges
-        addEdge(c000, c001); // 8
-        addEdge(c100, c101); // 9
-        addEdge(c110, c111); // 10
-        addEdge(c010, c011); // 11
-    }
-
-    private void addEdge(Location a, Location b) {
-        BlockDisplayNode edge = createEdgeNode(a, b);
-        if (edge != null) {
-            add(edge);
+    /**
+     * Store min/max of the two corners. Returns false (and clears the world)
+     * if the corners are missing or in different worlds.
+     */
+    private boolean setBounds(Location from, Location to) {
+        if (from == null || to == null || from.getWorld() == null || !from.getWorld().equals(to.getWorld())) {
+            this.world = null;
+            return false;
         }
-    }
 
-    private BlockDisplayNode createEdgeNode(Location start, Location end) {
-        if (start == null || end == null) return null;
-        if (!start.getWorld().equals(end.getWorld())) return null;
-
-        Vector3f dir = new Vector3f(
-                (float) (end.getX() - start.getX()),
-                (float) (end.getY() - start.getY()),
-                (float) (end.getZ() - start.getZ())
-        );
-        float length = dir.length();
-        if (length == 0) return null;
-
-        dir.normalize();
-
-        // Midpoint of the edge
-        Location mid = start.clone().add(end).multiply(0.5);
-
-        Vector3f scale = new Vector3f(thickness, thickness, length);
-
-        // Rotate local +Z to dir
-        Quaternionf q = new Quaternionf().rotationTo(new Vector3f(0, 0, 1), dir);
-        Vector3f rotationEuler = DisplayMath.quaternionToEulerYXZDeg(q);
-
-        BlockDisplayNode node = new BlockDisplayNode()
-                .location(mid)
-                .scale(scale)
-                .rotationEulerDeg(rotationEuler)
-                .material(material);
+        this.world = from.getWorld();
+        this.minX = Math.min(from.getX(), to.getX());
+        this.minY = Math.min(from.getY(), to.getY());
+        this.minZ = Math.min(from.getZ(), to.getZ());
+        this.maxX = Math.max(from.getX(), to.getX());
+        this.maxY = Math.max(from.getY(), to.getY());
+        this.maxZ = Math.max(from.getZ(), to.getZ());
+        return true;
+    }
 
-        if (glowing) {
-            node.glow(glowColor);
-        } else {
-            node.glow(); // ensure glow is off
+    private void buildNodes() {
+        nodes.clear();
+        if (world == null) return;
+
+        for (int[] edge : EDGES) {
+            BlockDisplayNode node = new BlockDisplayNode()
+                    .material(material)
+                    .moveMode(BlockDisplayNode.MoveMode.TRANSLATION);
+            if (applyEdge(node, edge[0], edge[1])) {
+                add(node);
+            }
         }
-
-        return node;
     }
 
     public DisplayCube anchor(Anchor3D anchor, Location worldLocation) {
@@ -148,103 +104,46 @@ public class DisplayCube extends DisplayGroup {
      * Reuses existing BlockDisplayNodes and uses interpolationTicks for smooth movement.
      */
     public void update(Location from, Location to, Collection<Player> viewers, int interpolationTicks) {
-        this.from = from == null ? null : from.clone();
-        this.to = to == null ? null : to.clone();
-
-        if (this.from == null || this.to == null) {
-            return;
-        }
-        if (!this.from.getWorld().equals(this.to.getWorld())) {
+        if (!setBounds(from, to)) {
             return;
         }
 
         // If something went wrong and we don't have 12 edges, rebuild & respawn once.
-        if (nodes.size() != 12) {
-            nodes.clear();
+        if (nodes.size() != EDGES.length) {
             buildNodes();
             spawn(viewers); // no interpolation on rebuild
             return;
         }
 
-        double minX = Math.min(this.from.getX(), this.to.getX());
-        double minY = Math.min(this.from.getY(), this.to.getY());
-        double minZ = Math.min(this.from.getZ(), this.to.getZ());
-        double maxX = Math.max(this.from.getX(), this.to.getX());
-        double maxY = Math.max(this.from.getY(), this.to.getY());
-        double maxZ = Math.max(this.from.getZ(), this.to.getZ());
-
-        var world = this.from.getWorld();
-
-        Location c000 = new Location(world, minX, minY, minZ);
-        Location c100 = new Location(world, maxX, minY, minZ);
-        Location c010 = new Location(world, minX, maxY, minZ);
-        Location c110 = new Location(world, maxX, maxY, minZ);
-
-        Location c001 = new Location(world, minX, minY, maxZ);
-        Location c101 = new Location(world, maxX, minY, maxZ);
-        Location c011 = new Location(world, minX, maxY, maxZ);
-        Location c111 = new Location(world, maxX, maxY, maxZ);
-
         // Same edge order as in buildNodes()
-
-        // Bottom rectangle
-        updateEdge((BlockDisplayNode) nodes.get(0), c000, c100, viewers, interpolationTicks);
-        updateEdge((BlockDisplayNode) nodes.get(1), c100, c110, viewers, interpolationTicks);
-        updateEdge((BlockDisplayNode) nodes.get(2), c110, c010, viewers, interpolationTicks);
-        updateEdge((BlockDisplayNode) nodes.get(3), c010, c000, viewers, interpolationTicks);
-
-        // Top rectangle
-        updateEdge((BlockDisplayNode) nodes.get(4), c001, c101, viewers, interpolationTicks);
-        updateEdge((BlockDisplayNode) nodes.get(5), c101, c111, viewers, interpolationTicks);
-        updateEdge((BlockDisplayNode) nodes.get(6), c111, c011, viewers, interpolationTicks);
-        updateEdge((BlockDisplayNode) nodes.get(7), c011, c001, viewers, interpolationTicks);
-
-        // Vertical edges
-        updateEdge((BlockDisplayNode) nodes.get(8),  c000, c001, viewers, interpolationTicks);
-        updateEdge((BlockDisplayNode) nodes.get(9),  c100, c101, viewers, interpolationTicks);
-        updateEdge((BlockDisplayNode) nodes.get(10), c110, c111, viewers, interpolationTicks);
-        updateEdge((BlockDisplayNode) nodes.get(11), c010, c011, viewers, interpolationTicks);
+        for (int i = 0; i < EDGES.length; i++) {
+            BlockDisplayNode node = nodes.get(i);
+            if (applyEdge(node, EDGES[i][0], EDGES[i][1])) {
+                node.update(viewers, interpolationTicks);
+            }
+        }
     }
 
-    private void updateEdge(BlockDisplayNode node,
-                            Location start,
-                            Location end,
-                            Collection<Player> viewers,
-                            int interpolationTicks) {
-        if (node == null || start == null || end == null) return;
-        if (!start.getWorld().equals(end.getWorld())) return;
-
-        Vector3f dir = new Vector3f(
-                (float) (end.getX() - start.getX()),
-                (float) (end.getY() - start.getY()),
-                (float) (end.getZ() - start.getZ())
-        );
-        float length = dir.length();
-        if (length == 0) return;
-
-        dir.normalize();
-
-        // Midpoint of the edge
-        Location mid = start.clone().add(end).multiply(0.5);
-
-        Vector3f scale = new Vector3f(thickness, thickness, length);
-
-        // Rotate local +Z to dir
-        Quaternionf q = new Quaternionf().rotationTo(new Vector3f(0, 0, 1), dir);
-        Vector3f rotationEuler = DisplayMath.quaternionToEulerYXZDeg(q);
-
-        node.location(mid)
-                .scale(scale)
-                .rotationEulerDeg(rotationEuler);
-
-        if (glowing) {
-            node.glow(glowColor);
-        } else {
-            node.glow();
-        }
+    /**
+     * Position, scale and rotate a node so it spans the edge between two corners.
+     *
+     * @return false for a degenerate (zero-length) edge
+     */
+    private boolean applyEdge(BlockDisplayNode node, int startCorner, int endCorner) {
+        double sx = cornerX(startCorner), sy = cornerY(startCorner), sz = cornerZ(startCorner);
+        double ex = cornerX(endCorner),   ey = cornerY(endCorner),   ez = cornerZ(endCorner);
+        return style.place(node, world, sx, sy, sz, ex, ey, ez);
+    }
 
-        node.update(viewers, interpolationTicks);
+    private double cornerX(int corner) {
+        return (corner & 1) != 0 ? maxX : minX;
     }
-}
 
+    private double cornerY(int corner) {
+        return (corner & 2) != 0 ? maxY : minY;
+    }
 
+    private double cornerZ(int corner) {
+        return (corner & 4) != 0 ? maxZ : minZ;
+    }
+}
@@ -4,13 +4,10 @@ import de.terranova.terraRenderer.refactor.Anchor.Anchor3D;
 import de.terranova.terraRenderer.refactor.Anchor.LineAnchor;
 import de.terranova.terraRenderer.refactor.BlockDisplayNode;
 import de.terranova.terraRenderer.refactor.DisplayGroup;
-import de.terranova.terraRenderer.refactor.DisplayMath;
-import org.bukkit.Color;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.joml.Quaternionf;
-import org.joml.Vector3f;
 
 import java.util.Collection;
 
@@ -41,27 +38,22 @@ public class DisplayLine extends DisplayGroup {
         if (start == null || end == null) return;
         if (!start.getWorld().equals(end.getWorld())) return;
 
-        Vector3f dir = new Vector3f(
-                (float) (end.getX() - start.getX()),
-                (float) (end.getY() - start.getY()),
-                (float) (end.getZ() - start.getZ())
-        );
-        float length = dir.length();
+        float dx = (float) (end.getX() - start.getX());
+        float dy = (float) (end.getY() - start.getY());
+        float dz = (float) (end.getZ() - start.getZ());
+        float length = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
         if (length == 0) return;
 
-        dir.normalize();
-
-        Location mid = start.clone().add(end).multiply(0.5);
-
-        Vector3f scale = new Vector3f(thickness, thickness, length);
-
-        Quaternionf q = new Quaternionf().rotationTo(new Vector3f(0, 0, 1), dir);
-        Vector3f rotationEuler = DisplayMath.quaternionToEulerYXZDeg(q);
+        // Rotate local +Z to the line direction (stored natively, no Euler round trip)
+        Quaternionf q = new Quaternionf().rotationTo(0f, 0f, 1f, dx / length, dy / length, dz / length);
 
         BlockDisplayNode node = new BlockDisplayNode()
-                .location(mid)
-                .scale(scale)
-                .rotationEulerDeg(rotationEuler)
+                .position(start.getWorld(),
+                        (start.getX() + end.getX()) * 0.5,
+                        (start.getY() + end.getY()) * 0.5,
+                        (start.getZ() + end.getZ()) * 0.5)
+                .scale(thickness, thickness, length)
+                .rotation(q)
                 .material(material);
         if(glowing) node.glow(glow);
         add(node);
@@ -0,0 +1,87 @@
+package de.terranova.terraRenderer.refactor.DisplayGroups;
+
+import de.terranova.terraRenderer.refactor.BlockDisplayNode;
+import de.terranova.terraRenderer.refactor.DisplayGroup;
+import it.unimi.dsi.fastutil.doubles.DoubleList;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A DisplayGroup of free line segments (one BlockDisplay per segment), e.g. the outline
+ * of a polygon, cylinder or ellipsoid.
+ *
+ * Segments are given as a flat list of coordinates, 6 per segment (x1 y1 z1 x2 y2 z2).
+ * update(...) reuses the existing nodes for the new segments and only spawns/despawns
+ * the difference, so changing the outline or its tessellation moves lines instead of
+ * recreating them.
+ */
+public class DisplayOutline extends DisplayGroup {
+
+    private final Material material;
+    private final LineStyle style;
+
+    public DisplayOutline(float thickness,
+                          Material material,
+                          boolean glowing,
+                          int glowColor) {
+        this.material = material;
+        this.style = new LineStyle(thickness, glowing, glowColor);
+    }
+
+    /** Number of segments (= nodes) of the outline. */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Lay the outline on new segments.
+     *
+     * - Existing nodes are moved to the first segments (interpolated)
+     * - Additional segments get new nodes, spawned for the viewers
+     * - Surplus nodes are despawned with one packet
+     *
+     * Zero-length segments are skipped.
+     */
+    public void update(World world, DoubleList segments, Collection<Player> viewers, int interpolationTicks) {
+        int index = 0;
+        List<BlockDisplayNode> added = new ArrayList<>();
+
+        for (int i = 0; i + 5 < segments.size(); i += 6) {
+            BlockDisplayNode node = index < nodes.size() ? nodes.get(index) : newNode();
+            if (!style.place(node, world,
+                    segments.getDouble(i), segments.getDouble(i + 1), segments.getDouble(i + 2),
+                    segments.getDouble(i + 3), segments.getDouble(i + 4), segments.getDouble(i + 5))) {
+                continue;
+            }
+
+            if (index < nodes.size()) {
+                node.update(viewers, interpolationTicks);
+            } else {
+                added.add(node);
+            }
+            index++;
+        }
+
+        if (index < nodes.size()) {
+            List<BlockDisplayNode> surplus = nodes.subList(index, nodes.size());
+            BlockDisplayNode.despawnAll(new ArrayList<>(surplus), viewers);
+            surplus.clear();
+        }
+
+        for (BlockDisplayNode node : added) {
+            add(node);
+            node.spawn(viewers);
+        }
+    }
+
+    private BlockDisplayNode newNode() {
+        return new BlockDisplayNode()
+                .material(material)
+                .moveMode(BlockDisplayNode.MoveMode.TRANSLATION);
+    }
+}
@@ -0,0 +1,59 @@
+package de.terranova.terraRenderer.refactor.DisplayGroups;
+
+import de.terranova.terraRenderer.refactor.BlockDisplayNode;
+import org.bukkit.World;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+/**
+ * Thickness and glow of line segments drawn as stretched BlockDisplays, and the math that
+ * lays a node onto a segment. Shared by DisplayCube (edges) and DisplayOutline (segments).
+ *
+ * Keeps scratch vectors, so every group owns its own instance (one group is updated from
+ * one thread at a time).
+ */
+final class LineStyle {
+
+    private final float thickness;
+    private final boolean glowing;
+    private final int glowColor;
+
+    private final Vector3f dir = new Vector3f();
+    private final Quaternionf rotation = new Quaternionf();
+
+    LineStyle(float thickness, boolean glowing, int glowColor) {
+        this.thickness = thickness;
+        this.glowing = glowing;
+        this.glowColor = glowColor;
+    }
+
+    /**
+     * Position, scale and rotate a node so it spans the segment.
+     *
+     * @return false for a degenerate (zero-length) segment
+     */
+    boolean place(BlockDisplayNode node, World world,
+                  double sx, double sy, double sz,
+                  double ex, double ey, double ez) {
+        dir.set((float) (ex - sx), (float) (ey - sy), (float) (ez - sz));
+        float length = dir.length();
+        if (length == 0) return false;
+
+        dir.div(length);
+
+        // Rotate local +Z to dir
+        rotation.rotationTo(0f, 0f, 1f, dir.x, dir.y, dir.z);
+
+        // Midpoint of the segment
+        node.position(world, (sx + ex) * 0.5, (sy + ey) * 0.5, (sz + ez) * 0.5)
+                .scale(thickness, thickness, length)
+                .rotation(rotation);
+
+        if (glowing) {
+            node.glow(glowColor);
+        } else {
+            node.glow(); // ensure glow is off
+        }
+        return true;
+    }
+}
@@ -0,0 +1,599 @@
+package de.terranova.terraRenderer.refactor;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import net.minecraft.network.Connection;
+import net.minecraft.network.ConnectionProtocol;
+import net.minecraft.network.RegistryFriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientGamePacketListener;
+import net.minecraft.network.protocol.game.ClientboundBundleDelimiterPacket;
+import net.minecraft.network.protocol.game.ClientboundBundlePacket;
+import net.minecraft.network.protocol.game.ClientboundRemoveEntitiesPacket;
+import net.minecraft.network.protocol.game.GameProtocols;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerGamePacketListenerImpl;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.craftbukkit.entity.CraftPlayer;
+import org.bukkit.entity.Player;
+import org.bukkit.util.Vector;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Per-player outbound queue for all packets produced by the renderer.
+ *
+ * - DisplayPackets only enqueues, nothing is written to the connection directly
+ * - Once per tick (tick end) every queue is flushed as one ClientboundBundlePacket
+ * - The client applies a bundle in a single frame, so multi-node shapes update atomically
+ * - Packets queued for several players are serialized once per flush and written to every
+ *   viewer's channel as a retained duplicate instead of being re-encoded per connection.
+ *   Only while the connection is in PLAY with nothing waiting in its own send queue,
+ *   otherwise connection.send keeps the per-connection order. Pre-encoded packets bypass
+ *   packet listeners (ProtocolLib, PacketEvents), they only see the non-shared packets
+ * - All removals queued for a player within one tick go out as a single remove-entities packet
+ * - Every player has a packet and byte budget per tick. Removals are always sent first,
+ *   the rest is ordered by distance to the player (cheaper in the look direction) and
+ *   whatever does not fit stays queued for the next ticks
+ */
+public final class DisplayPacketQueue {
+
+    /** Client-side limit of packets inside one bundle (BundlerInfo.BUNDLE_SIZE_LIMIT). */
+    private static final int MAX_BUNDLE_SIZE = 4096;
+
+    /** Encoded once per flush and written around pre-encoded packets to form a bundle. */
+    private static final ClientboundBundleDelimiterPacket BUNDLE_DELIMITER = new ClientboundBundleDelimiterPacket();
+
+    /** Player UUID -> operations waiting for the next flush (filled from main and Netty threads). */
+    private static final Map<UUID, PlayerQueue> QUEUES = new ConcurrentHashMap<>();
+
+    /** Packets queued for more than one player since the last flush (identity, guarded by itself). */
+    private static final Set<Packet<?>> SHARED = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /** Connection.pendingActions (packets Paper holds back), null if not accessible. */
+    private static final Field PENDING_ACTIONS = pendingActionsField();
+
+    /** Game protocol codec, bound lazily to the server registries. */
+    private static StreamCodec<ByteBuf, Packet<? super ClientGamePacketListener>> gameCodec;
+
+    // Budget per player and tick (removals are exempt)
+    private static volatile int maxPacketsPerTick = 512;
+    private static volatile int maxBytesPerTick = 64 * 1024;
+
+    // Deferral counters (main thread only)
+    private static long deferredOpsTotal;
+    private static long deferredBytesTotal;
+    private static int deferredOpsLastFlush;
+    private static int deferredBytesLastFlush;
+
+    private DisplayPacketQueue() {}
+
+    // ------------------------------------------------------------------------
+    // Enqueue
+    // ------------------------------------------------------------------------
+
+    /**
+     * Queue the packets of one entity (spawn or update) for all given (online) players.
+     * They are sent together with the next flush() that has budget left for them,
+     * never before earlier operations on the same entity.
+     *
+     * With two or more viewers each packet is encoded only once at flush time.
+     *
+     * @param x,y,z          entity position, used for the send priority
+     * @param estimatedBytes approximate encoded size of all packets
+     */
+    @SafeVarargs
+    public static void enqueue(Collection<Player> players,
+                               int entityId,
+                               double x, double y, double z,
+                               int estimatedBytes,
+                               Packet<? super ClientGamePacketListener>... packets) {
+        if (packets == null || packets.length == 0) return;
+        enqueue(players, new QueuedOp(packets, entityId, null, x, y, z, estimatedBytes));
+    }
+
+    /**
+     * Queue a remove-entities packet for all given (online) players.
+     * Removals skip the budget and go out first; operations on the same ids that
+     * are still waiting for a player are dropped.
+     */
+    public static void enqueueRemoval(Collection<Player> players,
+                                      int[] entityIds,
+                                      Packet<? super ClientGamePacketListener> packet) {
+        if (packet == null || entityIds == null || entityIds.length == 0) return;
+
+        @SuppressWarnings("unchecked")
+        Packet<? super ClientGamePacketListener>[] packets = new Packet[] { packet };
+        enqueue(players, new QueuedOp(packets, -1, entityIds, 0d, 0d, 0d, 2 + 5 * entityIds.length));
+    }
+
+    private static void enqueue(Collection<Player> players, QueuedOp op) {
+        if (players == null || players.isEmpty()) return;
+
+        int viewers = 0;
+        for (Player p : players) {
+            if (p == null || !p.isOnline()) continue;
+
+            QUEUES.computeIfAbsent(p.getUniqueId(), uuid -> new PlayerQueue()).incoming.add(op);
+            viewers++;
+        }
+
+        if (viewers > 1) {
+            synchronized (SHARED) {
+                Collections.addAll(SHARED, op.packets);
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Flush
+    // ------------------------------------------------------------------------
+
+    /**
+     * Sends everything queued since the last flush that fits into each player's budget,
+     * one bundle per player. Called once per tick from the main thread.
+     */
+    public static void flush() {
+        // New hitboxes must be clickable before their spawn packets leave
+        DisplayRegistry.publishHitboxes();
+
+        deferredOpsLastFlush = 0;
+        deferredBytesLastFlush = 0;
+        if (QUEUES.isEmpty()) return;
+
+        Set<Packet<?>> shared = Collections.newSetFromMap(new IdentityHashMap<>());
+        synchronized (SHARED) {
+            shared.addAll(SHARED);
+            SHARED.clear();
+        }
+
+        // Shared packet -> its bytes, encoded by the first viewer that needs them
+        Map<Packet<?>, ByteBuf> encoded = new IdentityHashMap<>();
+        try {
+            for (Map.Entry<UUID, PlayerQueue> entry : QUEUES.entrySet()) {
+                PlayerQueue queue = entry.getValue();
+                if (queue.isEmpty()) continue;
+
+                Player player = Bukkit.getPlayer(entry.getKey());
+                if (player == null || !player.isOnline()) {
+                    QUEUES.remove(entry.getKey());
+                    continue;
+                }
+
+                List<Packet<? super ClientGamePacketListener>> packets = queue.drain(player);
+                for (Packet<?> packet : packets) {
+                    RenderMetrics.packetSent(player, packet);
+                }
+                RenderMetrics.bytesSent(player, queue.drainedBytes);
+                send(((CraftPlayer) player).getHandle().connection, packets, shared, encoded);
+            }
+        } finally {
+            // Every channel holds its own retained duplicate, drop our reference
+            for (ByteBuf buf : encoded.values()) {
+                buf.release();
+            }
+        }
+
+        deferredOpsTotal += deferredOpsLastFlush;
+        deferredBytesTotal += deferredBytesLastFlush;
+    }
+
+    /**
+     * Drops all pending packets of a player (quit / disconnect, world change).
+     */
+    public static void discard(Player player) {
+        if (player == null) return;
+        QUEUES.remove(player.getUniqueId());
+    }
+
+    // ------------------------------------------------------------------------
+    // Budget & counters
+    // ------------------------------------------------------------------------
+
+    /**
+     * Per-player limits for one tick. Removals are not counted against them; at least
+     * one operation is sent per tick even if it alone exceeds the byte budget.
+     */
+    public static void budget(int packetsPerTick, int bytesPerTick) {
+        if (packetsPerTick < 1 || bytesPerTick < 1) {
+            throw new IllegalArgumentException("Budget must be positive");
+        }
+        maxPacketsPerTick = packetsPerTick;
+        maxBytesPerTick = bytesPerTick;
+    }
+
+    public static int getMaxPacketsPerTick() {
+        return maxPacketsPerTick;
+    }
+
+    public static int getMaxBytesPerTick() {
+        return maxBytesPerTick;
+    }
+
+    /** Operations (spawn/update of one entity) pushed to a later tick by the last flush. */
+    public static int getDeferredOpsLastFlush() {
+        return deferredOpsLastFlush;
+    }
+
+    /** Estimated bytes pushed to a later tick by the last flush. */
+    public static int getDeferredBytesLastFlush() {
+        return deferredBytesLastFlush;
+    }
+
+    /** Sum of deferred operations over all flushes (one operation may count several times). */
+    public static long getDeferredOpsTotal() {
+        return deferredOpsTotal;
+    }
+
+    public static long getDeferredBytesTotal() {
+        return deferredBytesTotal;
+    }
+
+    /** Operations currently waiting for the given player. */
+    public static int getPending(Player player) {
+        if (player == null) return 0;
+        PlayerQueue queue = QUEUES.get(player.getUniqueId());
+        return queue == null ? 0 : queue.incoming.size() + queue.deferred.size();
+    }
+
+    // ------------------------------------------------------------------------
+    // Per-player sending
+    // ------------------------------------------------------------------------
+
+    private static void send(ServerGamePacketListenerImpl connection,
+                             List<Packet<? super ClientGamePacketListener>> packets,
+                             Set<Packet<?>> shared,
+                             Map<Packet<?>, ByteBuf> encoded) {
+        if (packets.isEmpty()) return;
+
+        if (containsAny(packets, shared) && canWriteEncoded(connection.connection)
+                && writeEncoded(connection, packets, shared, encoded)) {
+            return;
+        }
+
+        for (int from = 0; from < packets.size(); from += MAX_BUNDLE_SIZE) {
+            int to = Math.min(packets.size(), from + MAX_BUNDLE_SIZE);
+            sendBundle(connection, packets.subList(from, to));
+        }
+    }
+
+    private static void sendBundle(ServerGamePacketListenerImpl connection,
+                                   List<Packet<? super ClientGamePacketListener>> packets) {
+        // A bundle of one only adds two delimiter packets
+        if (packets.size() == 1) {
+            connection.send(packets.get(0));
+            return;
+        }
+        connection.send(new ClientboundBundlePacket(new ArrayList<>(packets)));
+    }
+
+    /**
+     * Raw writes are only ordered with connection.send while the connection sends directly:
+     * PLAY protocol (game codec) and no packets held back in its pending queue, which a raw
+     * write would overtake.
+     */
+    private static boolean canWriteEncoded(Connection connection) {
+        if (PENDING_ACTIONS == null || !connection.isConnected()) return false;
+        if (connection.getPacketListener() == null
+                || connection.getPacketListener().protocol() != ConnectionProtocol.PLAY) {
+            return false;
+        }
+        try {
+            return ((Collection<?>) PENDING_ACTIONS.get(connection)).isEmpty();
+        } catch (IllegalAccessException | ClassCastException e) {
+            return false;
+        }
+    }
+
+    private static Field pendingActionsField() {
+        try {
+            Field field = Connection.class.getDeclaredField("pendingActions");
+            field.setAccessible(true);
+            return Collection.class.isAssignableFrom(field.getType()) ? field : null;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Unknown server internals: always send through the connection
+            return null;
+        }
+    }
+
+    /**
+     * Writes already serialized packets straight to the channel. They enter the pipeline
+     * behind the packet encoder (which ignores ByteBufs), so compression, framing and
+     * encryption still apply per connection.
+     *
+     * @return false if encoding failed and the caller should fall back to normal sending
+     */
+    private static boolean writeEncoded(ServerGamePacketListenerImpl connection,
+                                        List<Packet<? super ClientGamePacketListener>> packets,
+                                        Set<Packet<?>> shared,
+                                        Map<Packet<?>, ByteBuf> encoded) {
+        Channel channel = connection.connection.channel;
+        if (channel == null || !channel.isActive()) return true;
+
+        List<ByteBuf> buffers = new ArrayList<>(packets.size() + 2);
+        try {
+            ByteBuf delimiter = encoded.computeIfAbsent(BUNDLE_DELIMITER, p -> encode(BUNDLE_DELIMITER));
+
+            for (int from = 0; from < packets.size(); from += MAX_BUNDLE_SIZE) {
+                int to = Math.min(packets.size(), from + MAX_BUNDLE_SIZE);
+                boolean bundle = to - from > 1;
+
+                if (bundle) buffers.add(delimiter.retainedDuplicate());
+                for (int i = from; i < to; i++) {
+                    Packet<? super ClientGamePacketListener> packet = packets.get(i);
+                    if (shared.contains(packet)) {
+                        buffers.add(encoded.computeIfAbsent(packet, p -> encode(packet)).retainedDuplicate());
+                    } else {
+                        buffers.add(encode(packet));
+                    }
+                }
+                if (bundle) buffers.add(delimiter.retainedDuplicate());
+            }
+        } catch (RuntimeException e) {
+            for (ByteBuf buf : buffers) {
+                buf.release();
+            }
+            return false;
+        }
+
+        // One event-loop task per player instead of one per write
+        channel.eventLoop().execute(() -> {
+            for (ByteBuf buf : buffers) {
+                channel.write(buf);
+            }
+            channel.flush();
+        });
+        return true;
+    }
+
+    private static ByteBuf encode(Packet<? super ClientGamePacketListener> packet) {
+        ByteBuf buf = ByteBufAllocator.DEFAULT.buffer();
+        try {
+            gameCodec().encode(buf, packet);
+            return buf;
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
+        }
+    }
+
+    private static StreamCodec<ByteBuf, Packet<? super ClientGamePacketListener>> gameCodec() {
+        if (gameCodec == null) {
+            gameCodec = GameProtocols.CLIENTBOUND_TEMPLATE
+                    .bind(RegistryFriendlyByteBuf.decorator(MinecraftServer.getServer().registryAccess()))
+                    .codec();
+        }
+        return gameCodec;
+    }
+
+    private static boolean containsAny(List<Packet<? super ClientGamePacketListener>> packets, Set<Packet<?>> shared) {
+        if (shared.isEmpty()) return false;
+        for (Packet<?> packet : packets) {
+            if (shared.contains(packet)) return true;
+        }
+        return false;
+    }
+
+    // ------------------------------------------------------------------------
+    // Queue entries
+    // ------------------------------------------------------------------------
+
+    /**
+     * Packets that belong together (add + data, teleport + data, or one removal).
+     * The same instance is shared by all players it was queued for; it is never mutated.
+     */
+    private static final class QueuedOp {
+        final Packet<? super ClientGamePacketListener>[] packets;
+        /** Spawned / updated entity, -1 for removals. */
+        final int entityId;
+        /** Removed entities, null for spawns / updates. */
+        final int[] removedIds;
+        final double x, y, z;
+        final int estimatedBytes;
+
+        QueuedOp(Packet<? super ClientGamePacketListener>[] packets,
+                 int entityId,
+                 int[] removedIds,
+                 double x, double y, double z,
+                 int estimatedBytes) {
+            this.packets = packets;
+            this.entityId = entityId;
+            this.removedIds = removedIds;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.estimatedBytes = Math.max(1, estimatedBytes);
+        }
+
+        boolean isRemoval() {
+            return removedIds != null;
+        }
+    }
+
+    /** Per-player state: new operations from any thread, deferred ones from the main thread. */
+    private static final class PlayerQueue {
+        final Queue<QueuedOp> incoming = new ConcurrentLinkedQueue<>();
+        /** Operations that did not fit into an earlier tick, oldest first. */
+        List<QueuedOp> deferred = new ArrayList<>();
+        /** Flushes each deferred entity has waited so far (ages its priority). */
+        final Int2IntOpenHashMap waited = new Int2IntOpenHashMap();
+        /** Estimated bytes of the operations taken by the last drain(). */
+        int drainedBytes;
+
+        boolean isEmpty() {
+            return incoming.isEmpty() && deferred.isEmpty();
+        }
+
+        /**
+         * Orders all pending operations and takes what fits into this tick's budget.
+         * Everything else is kept (in order) for the next flush.
+         */
+        List<Packet<? super ClientGamePacketListener>> drain(Player player) {
+            List<QueuedOp> ops = deferred;
+            deferred = new ArrayList<>();
+            QueuedOp polled;
+            while ((polled = incoming.poll()) != null) {
+                ops.add(polled);
+            }
+
+            ops = dropSuperseded(ops);
+            sortByPriority(ops, player);
+
+            List<Packet<? super ClientGamePacketListener>> out = new ArrayList<>();
+            // All removals of this tick are merged into one packet (sent first, see sortByPriority)
+            QueuedOp firstRemoval = null;
+            IntArrayList removedIds = null;
+            int packetBudget = maxPacketsPerTick;
+            int byteBudget = maxBytesPerTick;
+            boolean sentAny = false;
+            IntOpenHashSet deferredIds = null;
+            drainedBytes = 0;
+
+            for (QueuedOp op : ops) {
+                if (op.isRemoval()) {
+                    if (firstRemoval == null) {
+                        firstRemoval = op;
+                    } else {
+                        if (removedIds == null) removedIds = new IntArrayList(firstRemoval.removedIds);
+                        removedIds.addElements(removedIds.size(), op.removedIds);
+                    }
+                    for (int id : op.removedIds) {
+                        waited.remove(id);
+                    }
+                    continue;
+                }
+
+                // Keep per-entity order: once an entity is deferred, its later ops wait too
+                boolean fits = op.packets.length <= packetBudget && op.estimatedBytes <= byteBudget;
+                if ((deferredIds != null && deferredIds.contains(op.entityId)) || (!fits && sentAny)) {
+                    if (deferredIds == null) deferredIds = new IntOpenHashSet();
+                    deferredIds.add(op.entityId);
+                    deferred.add(op);
+                    deferredOpsLastFlush++;
+                    deferredBytesLastFlush += op.estimatedBytes;
+                    continue;
+                }
+
+                Collections.addAll(out, op.packets);
+                packetBudget -= op.packets.length;
+                byteBudget -= op.estimatedBytes;
+                drainedBytes += op.estimatedBytes;
+                sentAny = true;
+            }
+
+            if (removedIds != null) {
+                out.add(0, new ClientboundRemoveEntitiesPacket(removedIds));
+                drainedBytes += 2 + 5 * removedIds.size();
+            } else if (firstRemoval != null) {
+                out.add(0, firstRemoval.packets[0]);
+                drainedBytes += firstRemoval.estimatedBytes;
+            }
+
+            if (deferredIds == null) {
+                waited.clear();
+            } else {
+                waited.keySet().retainAll(deferredIds);
+                for (int id : deferredIds) {
+                    waited.addTo(id, 1);
+                }
+            }
+            return out;
+        }
+
+        /**
+         * Drops spawns/updates that are followed by a removal of the same entity.
+         * They would be sorted behind the removal and leave a ghost entity on the client.
+         */
+        private static List<QueuedOp> dropSuperseded(List<QueuedOp> ops) {
+            IntOpenHashSet removedLater = null;
+            boolean dropped = false;
+            boolean[] drop = null;
+
+            for (int i = ops.size() - 1; i >= 0; i--) {
+                QueuedOp op = ops.get(i);
+                if (op.isRemoval()) {
+                    if (removedLater == null) removedLater = new IntOpenHashSet();
+                    removedLater.addAll(IntArrayList.wrap(op.removedIds));
+                } else if (removedLater != null && removedLater.contains(op.entityId)) {
+                    if (drop == null) drop = new boolean[ops.size()];
+                    drop[i] = true;
+                    dropped = true;
+                }
+            }
+            if (!dropped) return ops;
+
+            List<QueuedOp> kept = new ArrayList<>(ops.size());
+            for (int i = 0; i < ops.size(); i++) {
+                if (!drop[i]) kept.add(ops.get(i));
+            }
+            return kept;
+        }
+
+        /**
+         * Stable sort: removals first, then by squared distance to the player's eyes,
+         * halved straight ahead and raised behind the player. All operations of one entity
+         * share the priority of its first one, so their relative order never changes.
+         * Each tick an entity has been deferred divides its priority again (no starvation).
+         */
+        private void sortByPriority(List<QueuedOp> ops, Player player) {
+            if (ops.size() < 2) return;
+
+            Location eye = player.getEyeLocation();
+            Vector look = eye.getDirection();
+            double ex = eye.getX(), ey = eye.getY(), ez = eye.getZ();
+
+            Int2DoubleOpenHashMap priorities = new Int2DoubleOpenHashMap();
+            double[] keys = new double[ops.size()];
+            for (int i = 0; i < ops.size(); i++) {
+                QueuedOp op = ops.get(i);
+                if (op.isRemoval()) {
+                    keys[i] = Double.NEGATIVE_INFINITY;
+                    continue;
+                }
+                if (priorities.containsKey(op.entityId)) {
+                    keys[i] = priorities.get(op.entityId);
+                    continue;
+                }
+
+                double dx = op.x - ex, dy = op.y - ey, dz = op.z - ez;
+                double distSq = dx * dx + dy * dy + dz * dz;
+                double dot = 0d;
+                if (distSq > 1.0E-6) {
+                    dot = (dx * look.getX() + dy * look.getY() + dz * look.getZ()) / Math.sqrt(distSq);
+                }
+                double priority = distSq * (1.0 - 0.5 * dot) / (1 + waited.get(op.entityId));
+
+                priorities.put(op.entityId, priority);
+                keys[i] = priority;
+            }
+
+            Integer[] order = new Integer[ops.size()];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> Double.compare(keys[a], keys[b])); // merge sort, stable
+
+            List<QueuedOp> sorted = new ArrayList<>(ops.size());
+            for (Integer i : order) sorted.add(ops.get(i));
+            ops.clear();
+            ops.addAll(sorted);
+        }
+    }
+}
@@ -1,62 +1,78 @@
 package de.terranova.terraRenderer.refactor;
 
-import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientboundAddEntityPacket;
 import net.minecraft.network.protocol.game.ClientboundRemoveEntitiesPacket;
 import net.minecraft.network.protocol.game.ClientboundSetEntityDataPacket;
 import net.minecraft.network.protocol.game.ClientboundTeleportEntityPacket;
-import net.minecraft.server.level.ServerEntity;
-import net.minecraft.server.level.ServerLevel;
-import net.minecraft.world.entity.Entity;
+import net.minecraft.network.syncher.SynchedEntityData;
+import net.minecraft.world.entity.EntityType;
 import net.minecraft.world.entity.PositionMoveRotation;
-import net.minecraft.world.entity.Relative;
 import net.minecraft.world.phys.Vec3;
-import org.bukkit.craftbukkit.entity.CraftPlayer;
 import org.bukkit.entity.Player;
+import org.joml.Quaternionfc;
+import org.joml.Vector3fc;
 
 import java.util.Collection;
-import java.util.Collections;
-import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 
 /**
- * Utility for spawning and removing NMS entities via packets only
- * (entities are NOT added to the world).
+ * Utility for spawning, updating and removing packet-only entities
+ * (no NMS entity exists server-side, only ids and packets).
+ *
+ * Packets are not sent right away but queued per player in DisplayPacketQueue
+ * and flushed as one bundle at tick end. Spawned/removed ids are reported to the
+ * DisplayRegistry, which tracks what each client has.
  */
 public final class DisplayPackets {
 
+    /** Most significant bits of the UUIDs we hand out (not a valid v4 UUID, so no clash with real entities). */
+    private static final long UUID_MSB = 0x5465727261526e64L;
+
+    /** Approximate encoded sizes (packet id, var-int entity id, payload). */
+    private static final int ADD_ENTITY_BYTES = 1 + 5 + 16 + 24 + 3 + 1 + 1 + 6 + 1;
+    private static final int TELEPORT_BYTES = 1 + 5 + 24 + 24 + 8 + 4 + 1;
+
     private DisplayPackets() {}
 
     /**
-     * Sends spawn + metadata packets for a given NMS entity to the given players.
-     * The entity is NOT registered in the world – this is purely packet-based.
+     * Sends add-entity + metadata packets for a packet-only entity to the given players.
+     *
+     * @param data non-default entity-data values, may be empty
      */
-    public static void spawn(Entity nmsEntity, Collection<Player> players) {
-        if (nmsEntity == null || players == null || players.isEmpty()) return;
+    public static void spawn(int entityId,
+                             EntityType<?> type,
+                             double x, double y, double z,
+                             List<SynchedEntityData.DataValue<?>> data,
+                             Collection<Player> players) {
+        if (players == null || players.isEmpty()) return;
 
-        ServerLevel nmsWorld = (ServerLevel) nmsEntity.level();
+        long start = System.nanoTime();
+        DisplayRegistry.shown(entityId, players);
 
-        ServerEntity serverEntity = new ServerEntity(
-                nmsWorld,
-                nmsEntity,
+        ClientboundAddEntityPacket spawnPacket = new ClientboundAddEntityPacket(
+                entityId,
+                uuidFor(entityId),
+                x, y, z,
+                0f, 0f,
+                type,
                 0,
-                false,
-                packet -> {},
-                Collections.emptySet()
+                Vec3.ZERO,
+                0d
         );
 
-        Packet<?> spawnPacket = nmsEntity.getAddEntityPacket(serverEntity);
-
-        var dataItems = nmsEntity.getEntityData().packAll();
-        ClientboundSetEntityDataPacket dataPacket =
-                new ClientboundSetEntityDataPacket(nmsEntity.getId(), dataItems);
+        ClientboundSetEntityDataPacket dataPacket = (data == null || data.isEmpty())
+                ? null
+                : new ClientboundSetEntityDataPacket(entityId, data);
 
-        for (Player p : players) {
-            if (p == null || !p.isOnline()) continue;
-
-            var handle = ((CraftPlayer) p).getHandle();
-            handle.connection.send(spawnPacket);
-            handle.connection.send(dataPacket);
+        if (dataPacket == null) {
+            DisplayPacketQueue.enqueue(players, entityId, x, y, z, ADD_ENTITY_BYTES, spawnPacket);
+        } else {
+            DisplayPacketQueue.enqueue(players, entityId, x, y, z,
+                    ADD_ENTITY_BYTES + estimateBytes(data), spawnPacket, dataPacket);
         }
+        RenderMetrics.packetNanos(System.nanoTime() - start);
     }
 
     /**
@@ -65,62 +81,106 @@ public final class DisplayPackets {
     public static void remove(int entityId, Collection<Player> players) {
         if (players == null || players.isEmpty()) return;
 
+        long start = System.nanoTime();
+        int[] entityIds = { entityId };
+        DisplayRegistry.hidden(entityIds, players);
+
         ClientboundRemoveEntitiesPacket removePacket =
                 new ClientboundRemoveEntitiesPacket(entityId);
 
-        for (Player p : players) {
-            if (p == null || !p.isOnline()) continue;
-
-            var handle = ((CraftPlayer) p).getHandle();
-            handle.connection.send(removePacket);
-        }
+        DisplayPacketQueue.enqueueRemoval(players, entityIds, removePacket);
+        RenderMetrics.packetNanos(System.nanoTime() - start);
     }
 
     /**
-     * Sends an update (teleport + metadata) for an existing packet-only entity.
-     * Used for smooth interpolation updates of BlockDisplayNode / Display entities.
+     * Sends one remove-entity packet for all given ids to the given players.
      */
-    public static void update(Entity nmsEntity, Collection<Player> players) {
-        if (nmsEntity == null || players == null || players.isEmpty()) return;
-
-        // --- Teleport part (position / rotation) ---
-        Vec3 position = new Vec3(
-                nmsEntity.getX(),
-                nmsEntity.getY(),
-                nmsEntity.getZ()
-        );
-
-        // Use the entity's current delta movement (or Vec3.ZERO if you prefer)
-        Vec3 deltaMovement = nmsEntity.getDeltaMovement();
-
-        PositionMoveRotation change = new PositionMoveRotation(
-                position,
-                deltaMovement,
-                nmsEntity.getYRot(), // yaw
-                nmsEntity.getXRot()  // pitch
-        );
+    public static void remove(int[] entityIds, Collection<Player> players) {
+        if (entityIds == null || entityIds.length == 0) return;
+        if (players == null || players.isEmpty()) return;
 
-        Set<Relative> relatives = EnumSet.noneOf(Relative.class); // absolute position/rotation
+        long start = System.nanoTime();
+        DisplayRegistry.hidden(entityIds, players);
+        DisplayPacketQueue.enqueueRemoval(players, entityIds, new ClientboundRemoveEntitiesPacket(entityIds));
+        RenderMetrics.packetNanos(System.nanoTime() - start);
+    }
 
-        ClientboundTeleportEntityPacket teleportPacket =
-                new ClientboundTeleportEntityPacket(
-                        nmsEntity.getId(),
-                        change,
-                        relatives,
-                        nmsEntity.onGround()
-                );
+    /**
+     * Sends an update for an existing packet-only entity: the given changed
+     * entity-data values, plus a teleport if the position moved.
+     * Used for smooth interpolation updates of BlockDisplayNode / Display entities.
+     *
+     * @param moved whether the entity position changed since it was last sent
+     * @param data  changed entity-data values only, may be empty
+     */
+    public static void update(int entityId,
+                              boolean moved,
+                              double x, double y, double z,
+                              List<SynchedEntityData.DataValue<?>> data,
+                              Collection<Player> players) {
+        if (players == null || players.isEmpty()) return;
 
-        // --- Metadata part (includes Display transformation + interpolation fields) ---
-        var dataItems = nmsEntity.getEntityData().packAll();
-        ClientboundSetEntityDataPacket dataPacket =
-                new ClientboundSetEntityDataPacket(nmsEntity.getId(), dataItems);
+        long start = System.nanoTime();
+
+        // --- Teleport part (absolute position, no rotation), only if the entity actually moved ---
+        ClientboundTeleportEntityPacket teleportPacket = null;
+        if (moved) {
+            PositionMoveRotation change = new PositionMoveRotation(
+                    new Vec3(x, y, z),
+                    Vec3.ZERO,
+                    0f, // yaw
+                    0f  // pitch
+            );
+
+            teleportPacket = new ClientboundTeleportEntityPacket(
+                    entityId,
+                    change,
+                    Set.of(), // absolute position/rotation
+                    false
+            );
+        }
 
-        for (Player p : players) {
-            if (p == null || !p.isOnline()) continue;
+        // --- Metadata part: only changed values ---
+        ClientboundSetEntityDataPacket dataPacket = (data == null || data.isEmpty())
+                ? null
+                : new ClientboundSetEntityDataPacket(entityId, data);
+
+        if (teleportPacket == null && dataPacket == null) return;
+
+        if (dataPacket == null) {
+            DisplayPacketQueue.enqueue(players, entityId, x, y, z, TELEPORT_BYTES, teleportPacket);
+        } else if (teleportPacket == null) {
+            DisplayPacketQueue.enqueue(players, entityId, x, y, z, estimateBytes(data), dataPacket);
+        } else {
+            // Metadata first, so a changed pos/rot interpolation duration applies to this teleport
+            DisplayPacketQueue.enqueue(players, entityId, x, y, z,
+                    TELEPORT_BYTES + estimateBytes(data), dataPacket, teleportPacket);
+        }
+        RenderMetrics.packetNanos(System.nanoTime() - start);
+    }
 
-            var handle = ((CraftPlayer) p).getHandle();
-            handle.connection.send(teleportPacket);
-            handle.connection.send(dataPacket);
+    /**
+     * Rough encoded size of a set-entity-data packet, used for the per-player byte budget
+     * (uncompressed, without frame header).
+     */
+    static int estimateBytes(List<SynchedEntityData.DataValue<?>> data) {
+        int bytes = 1 + 5 + 1; // packet id, entity id, terminator
+        for (SynchedEntityData.DataValue<?> value : data) {
+            bytes += 2; // index + serializer id
+            Object v = value.value();
+            if (v instanceof Quaternionfc) bytes += 16;
+            else if (v instanceof Vector3fc) bytes += 12;
+            else if (v instanceof Float) bytes += 4;
+            else if (v instanceof Byte || v instanceof Boolean) bytes += 1;
+            else bytes += 5; // var ints, block states, ...
         }
+        return bytes;
+    }
+
+    /**
+     * Stable, allocation-cheap UUID for a packet-only entity (no SecureRandom involved).
+     */
+    public static UUID uuidFor(int entityId) {
+        return new UUID(UUID_MSB, entityId);
     }
 }
@@ -0,0 +1,329 @@
+package de.terranova.terraRenderer.refactor;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Owner of every live packet-only entity.
+ *
+ * - Nodes register when they are first spawned and unregister when their last viewer is gone
+ * - Hitbox (Interaction) ids map to their node here, for click routing
+ * - Every id spawned/removed through DisplayPackets is tracked per viewer, so the registry
+ *   knows exactly which client has which entity (nodes, hitboxes and DisplayBatch elements)
+ * - Quit / world change drop a player's state without packets, plugin disable removes
+ *   everything with one packet per player
+ *
+ * report() lists live counts and anything that looks leaked (ids of offline players, hitboxes
+ * of released nodes, spawned nodes without an online viewer); purge() repairs those entries
+ * and runs automatically every PURGE_INTERVAL_TICKS.
+ *
+ * Main thread only, except isHitbox(...) which is read from Netty threads: it checks an
+ * immutable snapshot of the hitbox ids (id range, a 4096-bit filter, then a primitive map)
+ * that is republished before queued packets are sent, so a client can never click a hitbox
+ * the Netty side does not know yet.
+ */
+public final class DisplayRegistry {
+
+    /** Ticks between automatic purges of stale entries. */
+    public static final int PURGE_INTERVAL_TICKS = 20 * 60;
+
+    /** Spawned nodes. */
+    private static final Set<BlockDisplayNode> NODES = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /** Display entity id -> node (only while registered). */
+    private static final Int2ObjectMap<BlockDisplayNode> NODES_BY_ENTITY_ID = new Int2ObjectOpenHashMap<>();
+
+    /** Hitbox entity id (Interaction) -> node. */
+    private static final Int2ObjectMap<BlockDisplayNode> NODES_BY_HITBOX_ID = new Int2ObjectOpenHashMap<>();
+
+    /** Bit filter of the hitbox snapshot: 4096 bits, indexed by the low 12 bits of an id. */
+    private static final int FILTER_MASK = 4095;
+    private static final int FILTER_WORDS = (FILTER_MASK + 1) / 64;
+
+    /** Read-only copy of the hitbox ids for the Netty threads, see publishHitboxes(). */
+    private static volatile HitboxSnapshot hitboxSnapshot = HitboxSnapshot.EMPTY;
+    private static boolean hitboxesDirty;
+
+    /** Player UUID -> entity ids currently spawned on that client by the renderer. */
+    private static final Map<UUID, IntSet> IDS_BY_VIEWER = new HashMap<>();
+
+    private static int ticksUntilPurge = PURGE_INTERVAL_TICKS;
+
+    private DisplayRegistry() {}
+
+    // ------------------------------------------------------------------------
+    // Nodes & hitboxes
+    // ------------------------------------------------------------------------
+
+    static void register(BlockDisplayNode node) {
+        if (NODES.add(node)) {
+            NODES_BY_ENTITY_ID.put(node.getDisplayEntityId(), node);
+        }
+    }
+
+    static void unregister(BlockDisplayNode node) {
+        if (NODES.remove(node)) {
+            NODES_BY_ENTITY_ID.remove(node.getDisplayEntityId());
+        }
+    }
+
+    static void registerHitbox(int hitboxEntityId, BlockDisplayNode node) {
+        NODES_BY_HITBOX_ID.put(hitboxEntityId, node);
+        hitboxesDirty = true;
+    }
+
+    static void unregisterHitbox(int hitboxEntityId) {
+        if (NODES_BY_HITBOX_ID.remove(hitboxEntityId) != null) hitboxesDirty = true;
+    }
+
+    /** Node owning the given hitbox entity, or null. Main thread. */
+    public static BlockDisplayNode hitboxOwner(int hitboxEntityId) {
+        return NODES_BY_HITBOX_ID.get(hitboxEntityId);
+    }
+
+    /**
+     * Whether the id is one of our hitboxes (as of the last publish). Safe to call from any
+     * thread; most foreign ids are rejected by the range or bit filter without a map lookup.
+     */
+    public static boolean isHitbox(int entityId) {
+        return hitboxSnapshot.contains(entityId);
+    }
+
+    /**
+     * Make hitbox changes visible to isHitbox(...). Called by the packet queue before it sends,
+     * copies the ids only if they changed since the last call.
+     */
+    static void publishHitboxes() {
+        if (!hitboxesDirty) return;
+        hitboxesDirty = false;
+        hitboxSnapshot = HitboxSnapshot.of(NODES_BY_HITBOX_ID.keySet());
+    }
+
+    public static int nodeCount() {
+        return NODES.size();
+    }
+
+    public static int hitboxCount() {
+        return NODES_BY_HITBOX_ID.size();
+    }
+
+    // ------------------------------------------------------------------------
+    // Per-viewer entity ids (fed by DisplayPackets)
+    // ------------------------------------------------------------------------
+
+    static void shown(int entityId, Collection<Player> players) {
+        for (Player p : players) {
+            if (p == null || !p.isOnline()) continue;
+            IDS_BY_VIEWER.computeIfAbsent(p.getUniqueId(), uuid -> new IntOpenHashSet()).add(entityId);
+        }
+    }
+
+    static void hidden(int[] entityIds, Collection<Player> players) {
+        for (Player p : players) {
+            if (p == null) continue;
+
+            IntSet ids = IDS_BY_VIEWER.get(p.getUniqueId());
+            if (ids == null) continue;
+
+            for (int id : entityIds) {
+                ids.remove(id);
+            }
+            if (ids.isEmpty()) IDS_BY_VIEWER.remove(p.getUniqueId());
+        }
+    }
+
+    /** Number of renderer entities the player's client currently has. */
+    public static int entityCount(Player player) {
+        IntSet ids = player == null ? null : IDS_BY_VIEWER.get(player.getUniqueId());
+        return ids == null ? 0 : ids.size();
+    }
+
+    // ------------------------------------------------------------------------
+    // Teardown
+    // ------------------------------------------------------------------------
+
+    /**
+     * Forget everything shown to a player without sending packets: the client already
+     * dropped the entities (quit, world change).
+     */
+    public static void forget(Player player) {
+        if (player == null) return;
+        forget(player.getUniqueId());
+    }
+
+    private static void forget(UUID uuid) {
+        IntSet ids = IDS_BY_VIEWER.remove(uuid);
+        if (ids == null) return;
+
+        for (BlockDisplayNode node : ownersOf(ids)) {
+            node.forgetViewer(uuid);
+        }
+    }
+
+    /**
+     * Remove every renderer entity from every client (one packet per player), release
+     * all nodes, stop tracking them for view culling and stop all animations. Called on plugin disable, before the packet queue
+     * is flushed a last time.
+     */
+    public static void shutdown() {
+        Map<UUID, IntSet> shown = new HashMap<>(IDS_BY_VIEWER);
+        IDS_BY_VIEWER.clear();
+
+        for (Map.Entry<UUID, IntSet> entry : shown.entrySet()) {
+            Player p = Bukkit.getPlayer(entry.getKey());
+            if (p == null || entry.getValue().isEmpty()) continue;
+
+            DisplayPackets.remove(entry.getValue().toIntArray(), List.of(p));
+        }
+
+        for (BlockDisplayNode node : new ArrayList<>(NODES)) {
+            node.forgetAllViewers();
+        }
+        NODES.clear();
+        NODES_BY_ENTITY_ID.clear();
+        NODES_BY_HITBOX_ID.clear();
+        hitboxesDirty = true;
+        ViewRegistry.clear();
+        DisplayAnimator.clear();
+    }
+
+    // ------------------------------------------------------------------------
+    // Leak detection
+    // ------------------------------------------------------------------------
+
+    /** Runs purge() every PURGE_INTERVAL_TICKS. Called once per tick. */
+    public static void tick() {
+        if (--ticksUntilPurge > 0) return;
+        ticksUntilPurge = PURGE_INTERVAL_TICKS;
+        purge();
+    }
+
+    public static LeakReport report() {
+        int trackedIds = 0;
+        int offlineViewers = 0;
+        int offlineIds = 0;
+        for (Map.Entry<UUID, IntSet> entry : IDS_BY_VIEWER.entrySet()) {
+            trackedIds += entry.getValue().size();
+            if (Bukkit.getPlayer(entry.getKey()) == null) {
+                offlineViewers++;
+                offlineIds += entry.getValue().size();
+            }
+        }
+
+        int orphanHitboxes = 0;
+        for (BlockDisplayNode node : NODES_BY_HITBOX_ID.values()) {
+            if (!NODES.contains(node)) orphanHitboxes++;
+        }
+
+        int nodesWithoutViewers = 0;
+        for (BlockDisplayNode node : NODES) {
+            if (node.getViewers().isEmpty()) nodesWithoutViewers++;
+        }
+
+        return new LeakReport(NODES.size(), NODES_BY_HITBOX_ID.size(), IDS_BY_VIEWER.size(), trackedIds,
+                offlineViewers, offlineIds, orphanHitboxes, nodesWithoutViewers);
+    }
+
+    /**
+     * Repair what report() counts as leaked: forget offline viewers, drop hitboxes of
+     * unregistered nodes and release nodes whose viewers are all offline.
+     *
+     * @return the report before purging
+     */
+    public static LeakReport purge() {
+        LeakReport before = report();
+
+        for (UUID uuid : new ArrayList<>(IDS_BY_VIEWER.keySet())) {
+            if (Bukkit.getPlayer(uuid) == null) forget(uuid);
+        }
+
+        if (NODES_BY_HITBOX_ID.values().removeIf(node -> !NODES.contains(node))) hitboxesDirty = true;
+
+        for (BlockDisplayNode node : new ArrayList<>(NODES)) {
+            if (node.getViewers().isEmpty()) node.forgetAllViewers();
+        }
+        return before;
+    }
+
+    /** Nodes owning any of the given ids (display or hitbox). */
+    private static Set<BlockDisplayNode> ownersOf(IntSet ids) {
+        Set<BlockDisplayNode> owners = Collections.newSetFromMap(new IdentityHashMap<>());
+        IntIterator it = ids.iterator();
+        while (it.hasNext()) {
+            int id = it.nextInt();
+            BlockDisplayNode node = NODES_BY_ENTITY_ID.get(id);
+            if (node == null) node = NODES_BY_HITBOX_ID.get(id);
+            if (node != null) owners.add(node);
+        }
+        return owners;
+    }
+
+    /**
+     * Immutable set of hitbox ids: [minId, maxId] range, a bit filter over the low 12 bits
+     * and the exact ids in an open-addressing primitive set.
+     */
+    private record HitboxSnapshot(int minId, int maxId, long[] filter, IntOpenHashSet ids) {
+
+        static final HitboxSnapshot EMPTY = new HitboxSnapshot(1, 0, new long[FILTER_WORDS], new IntOpenHashSet());
+
+        static HitboxSnapshot of(IntSet source) {
+            if (source.isEmpty()) return EMPTY;
+
+            int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+            long[] filter = new long[FILTER_WORDS];
+            IntIterator it = source.iterator();
+            while (it.hasNext()) {
+                int id = it.nextInt();
+                min = Math.min(min, id);
+                max = Math.max(max, id);
+                filter[(id & FILTER_MASK) >>> 6] |= 1L << id;
+            }
+            return new HitboxSnapshot(min, max, filter, new IntOpenHashSet(source));
+        }
+
+        boolean contains(int id) {
+            if (id < minId || id > maxId) return false;
+            if ((filter[(id & FILTER_MASK) >>> 6] & (1L << id)) == 0) return false;
+            return ids.contains(id);
+        }
+    }
+
+    /**
+     * @param liveNodes           registered (spawned) nodes
+     * @param hitboxes            entries of the hitbox map
+     * @param viewers             players with at least one tracked entity
+     * @param trackedIds          tracked entity ids over all viewers
+     * @param offlineViewers      tracked players that are no longer online (leak)
+     * @param offlineIds          ids held for offline players (leak)
+     * @param orphanHitboxes      hitboxes whose node is not registered (leak)
+     * @param nodesWithoutViewers registered nodes without an online viewer (leak)
+     */
+    public record LeakReport(int liveNodes,
+                             int hitboxes,
+                             int viewers,
+                             int trackedIds,
+                             int offlineViewers,
+                             int offlineIds,
+                             int orphanHitboxes,
+                             int nodesWithoutViewers) {
+
+        public boolean hasLeaks() {
+            return offlineViewers > 0 || orphanHitboxes > 0 || nodesWithoutViewers > 0;
+        }
+    }
+}
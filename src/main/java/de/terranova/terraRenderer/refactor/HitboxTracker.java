@@ -0,0 +1,317 @@
+package de.terranova.terraRenderer.refactor;
+
+import it.unimi.dsi.fastutil.doubles.Double2IntRBTreeMap;
+import it.unimi.dsi.fastutil.doubles.Double2IntSortedMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.SectionPos;
+import net.minecraft.util.Mth;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.attribute.Attribute;
+import org.bukkit.attribute.AttributeInstance;
+import org.bukkit.entity.Player;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Lazy hitboxes: a clickable node's Interaction entity is only spawned for viewers within
+ * interaction reach of it.
+ *
+ * - Spawned clickable nodes are indexed by world and chunk section (16³ blocks)
+ * - A player is re-checked when they moved RECHECK_DISTANCE blocks, or when a clickable
+ *   node was added, moved or resized near them (or away from them, while they have its
+ *   hitbox); only the sections within reach + the largest hitbox extent are scanned
+ * - A node that is no longer clickable (handler removed, other ClickMode) is untracked
+ *   and its hitbox removed from every client
+ * - A viewer gets the hitbox at reach (Attribute.ENTITY_INTERACTION_RANGE) + MARGIN and
+ *   loses it again beyond that + HIDE_HYSTERESIS, all leaving hitboxes of a player in one packet
+ *
+ * A board of 2,000 buttons therefore costs only the hitboxes of the few buttons around each
+ * player. Main thread only (driven by DisplayTickListener).
+ */
+public final class HitboxTracker {
+
+    /** Extra blocks beyond the reach, so the hitbox is there before the player can click. */
+    public static final double MARGIN = 2d;
+
+    /** Extra distance before a hitbox is removed again (avoids flicker at the border). */
+    private static final double HIDE_HYSTERESIS = 1d;
+
+    /** Player movement (blocks) that triggers a re-check. */
+    private static final double RECHECK_DISTANCE = 0.5d;
+
+    /** Reach if the player has no interaction range attribute. */
+    private static final double DEFAULT_REACH = 3d;
+
+    /** World UUID -> section key -> clickable spawned nodes in that section. */
+    private static final Map<UUID, Long2ObjectMap<Set<BlockDisplayNode>>> SECTIONS = new HashMap<>();
+
+    /** Clickable spawned node -> section it is indexed in. */
+    private static final Map<BlockDisplayNode, Indexed> NODES = new IdentityHashMap<>();
+
+    /** Hitbox extent -> indexed nodes with it; the largest one widens the section scan. */
+    private static final Double2IntSortedMap EXTENTS = new Double2IntRBTreeMap();
+
+    /** Player UUID -> position of the last check + nodes whose hitbox the player has. */
+    private static final Map<UUID, ViewerState> VIEWERS = new HashMap<>();
+
+    private HitboxTracker() {}
+
+    // ------------------------------------------------------------------------
+    // Nodes
+    // ------------------------------------------------------------------------
+
+    /** A clickable node was spawned (or got new viewers). */
+    static void track(BlockDisplayNode node) {
+        if (node.world() == null) return;
+
+        if (!NODES.containsKey(node)) {
+            Indexed indexed = new Indexed(node);
+            NODES.put(node, indexed);
+            index(indexed);
+        }
+        markAffected(node);
+    }
+
+    /** The node was released or is no longer clickable; its hitbox is gone for everyone. */
+    static void untrack(BlockDisplayNode node) {
+        Indexed indexed = NODES.remove(node);
+        if (indexed == null) return;
+
+        unindex(indexed);
+        for (ViewerState state : VIEWERS.values()) {
+            state.withHitbox.remove(node);
+        }
+    }
+
+    /**
+     * Called by nodes after a flushed update changed their position or display data.
+     * Only a move or a hitbox resize re-checks players.
+     */
+    static void onChanged(BlockDisplayNode node) {
+        Indexed indexed = NODES.get(node);
+        if (indexed == null) return;
+
+        boolean moved = node.x() != indexed.x || node.y() != indexed.y || node.z() != indexed.z
+                || !node.world().getUID().equals(indexed.world);
+        if (!moved && node.hitboxExtent() == indexed.extent) return;
+
+        // Re-index whenever something changed; cheap, and keeps position and extent current
+        unindex(indexed);
+        index(indexed);
+        markAffected(node);
+    }
+
+    /**
+     * Re-check only the players the node change can matter to: those whose last check was
+     * close enough to get its hitbox now, and those that have its hitbox (it may have left).
+     */
+    private static void markAffected(BlockDisplayNode node) {
+        World world = node.world();
+        double extent = node.hitboxExtent() + HIDE_HYSTERESIS + RECHECK_DISTANCE;
+
+        for (ViewerState state : VIEWERS.values()) {
+            if (state.dirty) continue;
+            if (state.withHitbox.contains(node)) {
+                state.dirty = true;
+                continue;
+            }
+            if (state.world != world) continue;
+
+            double range = state.reach + extent;
+            double dx = node.x() - state.x;
+            double dy = node.y() - state.y;
+            double dz = node.z() - state.z;
+            if (dx * dx + dy * dy + dz * dz <= range * range) state.dirty = true;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Viewers
+    // ------------------------------------------------------------------------
+
+    /** Re-check players that moved or were marked by node changes. Called once per tick. */
+    public static void tick() {
+        if (NODES.isEmpty() && VIEWERS.isEmpty()) return;
+
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            Location eye = player.getEyeLocation();
+            ViewerState state = VIEWERS.get(player.getUniqueId());
+            if (state == null) {
+                if (NODES.isEmpty()) continue;
+                state = new ViewerState();
+                VIEWERS.put(player.getUniqueId(), state);
+            } else if (!state.dirty && state.world == eye.getWorld() && state.distanceSq(eye) < RECHECK_DISTANCE * RECHECK_DISTANCE) {
+                continue;
+            }
+
+            state.dirty = false;
+            state.world = eye.getWorld();
+            state.x = eye.getX();
+            state.y = eye.getY();
+            state.z = eye.getZ();
+            refreshViewer(player, state, eye);
+        }
+    }
+
+    /** Forget a player without sending packets (quit, world change). */
+    public static void forget(Player player) {
+        VIEWERS.remove(player.getUniqueId());
+    }
+
+    /** Number of hitboxes the player currently has. */
+    public static int hitboxCount(Player player) {
+        ViewerState state = player == null ? null : VIEWERS.get(player.getUniqueId());
+        return state == null ? 0 : state.withHitbox.size();
+    }
+
+    private static void refreshViewer(Player player, ViewerState state, Location eye) {
+        UUID uuid = player.getUniqueId();
+        double reach = reach(player) + MARGIN;
+        state.reach = reach;
+
+        // Leaving: out of range, not a viewer/clickable anymore or hitbox dropped with a despawn
+        IntArrayList removedIds = new IntArrayList();
+        Iterator<BlockDisplayNode> it = state.withHitbox.iterator();
+        while (it.hasNext()) {
+            BlockDisplayNode node = it.next();
+            if (!node.hasHitbox(uuid)) {
+                it.remove();
+            } else if (!inReach(node, eye, reach + HIDE_HYSTERESIS) || !node.isViewer(player) || !node.isClickable()) {
+                node.hideHitbox(uuid, removedIds);
+                it.remove();
+            }
+        }
+        if (!removedIds.isEmpty()) {
+            DisplayPackets.remove(removedIds.toIntArray(), List.of(player));
+        }
+
+        // Entering: scan the sections within reach
+        Long2ObjectMap<Set<BlockDisplayNode>> sections = SECTIONS.get(eye.getWorld().getUID());
+        if (sections == null || sections.isEmpty()) return;
+
+        // Node centers are indexed, a large hitbox is in reach from farther away
+        double maxExtent = EXTENTS.isEmpty() ? 0d : EXTENTS.lastDoubleKey();
+        int r = (int) Math.ceil((reach + maxExtent) / 16d);
+        long center = sectionKey(eye.getX(), eye.getY(), eye.getZ());
+        int sx = SectionPos.x(center);
+        int sy = SectionPos.y(center);
+        int sz = SectionPos.z(center);
+
+        for (int dx = -r; dx <= r; dx++) {
+            for (int dy = -r; dy <= r; dy++) {
+                for (int dz = -r; dz <= r; dz++) {
+                    Set<BlockDisplayNode> nodes = sections.get(SectionPos.asLong(sx + dx, sy + dy, sz + dz));
+                    if (nodes == null) continue;
+
+                    for (BlockDisplayNode node : nodes) {
+                        if (state.withHitbox.contains(node) || !node.isClickable()) continue;
+                        if (!inReach(node, eye, reach) || !node.isViewer(player)) continue;
+
+                        node.showHitbox(player);
+                        if (node.hasHitbox(uuid)) state.withHitbox.add(node);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean inReach(BlockDisplayNode node, Location eye, double reach) {
+        double range = reach + node.hitboxExtent();
+        double dx = node.x() - eye.getX();
+        double dy = node.y() - eye.getY();
+        double dz = node.z() - eye.getZ();
+        return dx * dx + dy * dy + dz * dz <= range * range;
+    }
+
+    /** Interaction range of the player (also the ray length of the RaycastIndex). */
+    static double reach(Player player) {
+        AttributeInstance range = player.getAttribute(Attribute.ENTITY_INTERACTION_RANGE);
+        return range == null ? DEFAULT_REACH : range.getValue();
+    }
+
+    // ------------------------------------------------------------------------
+    // Section index
+    // ------------------------------------------------------------------------
+
+    private static void index(Indexed indexed) {
+        BlockDisplayNode node = indexed.node;
+        indexed.world = node.world().getUID();
+        indexed.section = sectionKey(node.x(), node.y(), node.z());
+        indexed.x = node.x();
+        indexed.y = node.y();
+        indexed.z = node.z();
+        indexed.extent = node.hitboxExtent();
+        EXTENTS.put(indexed.extent, EXTENTS.get(indexed.extent) + 1);
+
+        SECTIONS.computeIfAbsent(indexed.world, w -> new Long2ObjectOpenHashMap<>())
+                .computeIfAbsent(indexed.section, s -> Collections.newSetFromMap(new IdentityHashMap<>()))
+                .add(node);
+    }
+
+    private static void unindex(Indexed indexed) {
+        int count = EXTENTS.remove(indexed.extent) - 1;
+        if (count > 0) EXTENTS.put(indexed.extent, count);
+
+        Long2ObjectMap<Set<BlockDisplayNode>> sections = SECTIONS.get(indexed.world);
+        if (sections == null) return;
+
+        Set<BlockDisplayNode> nodes = sections.get(indexed.section);
+        if (nodes == null) return;
+
+        nodes.remove(indexed.node);
+        if (nodes.isEmpty()) sections.remove(indexed.section);
+    }
+
+    private static long sectionKey(double x, double y, double z) {
+        return SectionPos.asLong(
+                SectionPos.blockToSectionCoord(Mth.floor(x)),
+                SectionPos.blockToSectionCoord(Mth.floor(y)),
+                SectionPos.blockToSectionCoord(Mth.floor(z))
+        );
+    }
+
+    // ------------------------------------------------------------------------
+    // State holders
+    // ------------------------------------------------------------------------
+
+    private static final class Indexed {
+        final BlockDisplayNode node;
+        UUID world;
+        long section;
+        /** Position and hitbox extent when indexed. */
+        double x, y, z;
+        double extent;
+
+        Indexed(BlockDisplayNode node) {
+            this.node = node;
+        }
+    }
+
+    private static final class ViewerState {
+        World world;
+        double x, y, z;
+        /** Reach + MARGIN of the last check. */
+        double reach;
+        /** A node change near the player: re-check with the next tick even without movement. */
+        boolean dirty;
+        final Set<BlockDisplayNode> withHitbox = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        double distanceSq(Location loc) {
+            double dx = x - loc.getX();
+            double dy = y - loc.getY();
+            double dz = z - loc.getZ();
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package de.terranova.terraRenderer.refactor;
+
+import de.terranova.terraRenderer.refactor.BlockDisplayNode.ClickAction;
+import de.terranova.terraRenderer.refactor.BlockDisplayNode.ClickContext;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.util.Vector;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Server-side hover: which node each player is looking at, without any hitbox entity.
+ *
+ * - Spawned nodes with a hover handler are kept per world in the RaycastIndex (a NodeBvh over
+ *   their oriented boxes)
+ * - A player is raycast from the eye only when the look direction turned more than
+ *   RECHECK_ANGLE_DEG, the eye moved more than RECHECK_DISTANCE, or a node within their
+ *   reach (or the hovered one) changed; a raycast costs O(log n) box tests
+ * - The ray reaches as far as a click (interaction range), only hits nodes the player views
+ *   and is stopped by blocks like a click (placing a block alone does not re-raycast)
+ * - When the hovered node changes, the old node's handler gets HOVER_EXIT, then the new
+ *   node's handler gets HOVER_ENTER (with the hit position relative to the node position)
+ *
+ * Nodes that disappear while hovered get their HOVER_EXIT on the next tick. Players that quit
+ * or change world are forgotten without events. Main thread only (driven by DisplayTickListener).
+ */
+public final class HoverTracker {
+
+    /** Eye movement (blocks) that triggers a new raycast. */
+    private static final double RECHECK_DISTANCE = 0.05d;
+
+    /** Look direction change (degrees) that triggers a new raycast. */
+    private static final double RECHECK_ANGLE_DEG = 0.5d;
+
+    private static final double RECHECK_COS = Math.cos(Math.toRadians(RECHECK_ANGLE_DEG));
+
+    /** Player UUID -> eye/look of the last raycast + hovered node. */
+    private static final Map<UUID, ViewerState> VIEWERS = new HashMap<>();
+
+    private HoverTracker() {}
+
+    /** Raycast players that moved, looked around or were marked by node changes. Called once per tick. */
+    public static void tick() {
+        if (RaycastIndex.isEmpty() && VIEWERS.isEmpty()) return;
+
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            Location eye = player.getEyeLocation();
+            World world = eye.getWorld();
+            boolean hasNodes = RaycastIndex.hasNodes(world);
+
+            ViewerState state = VIEWERS.get(player.getUniqueId());
+            if (state == null) {
+                if (!hasNodes) continue;
+                state = new ViewerState();
+                VIEWERS.put(player.getUniqueId(), state);
+            }
+
+            Vector dir = eye.getDirection();
+            if (!state.needsRaycast(world, eye, dir)) continue;
+            state.remember(world, eye, dir, HitboxTracker.reach(player));
+
+            NodeBvh.Hit hit = hasNodes ? RaycastIndex.raycast(player, eye, dir, BlockDisplayNode::isHoverable) : null;
+            if (hit != null && RaycastIndex.blocked(eye, dir, hit)) hit = null;
+            hover(player, state, eye, dir, hit);
+
+            if (state.hovered == null && !hasNodes) VIEWERS.remove(player.getUniqueId());
+        }
+    }
+
+    /**
+     * A hoverable node was added, removed, or its box changed: re-raycast the players that
+     * hover it and those whose last ray could reach it. Called by the RaycastIndex.
+     */
+    static void markAffected(BlockDisplayNode node) {
+        if (VIEWERS.isEmpty()) return;
+
+        World world = node.world();
+        float extent = node.getScale().length() * 0.5f;
+        for (ViewerState state : VIEWERS.values()) {
+            if (state.dirty) continue;
+            if (state.hovered == node) {
+                state.dirty = true;
+                continue;
+            }
+            if (state.world != world) continue;
+
+            double range = state.reach + extent + RECHECK_DISTANCE;
+            double dx = node.x() - state.x;
+            double dy = node.y() - state.y;
+            double dz = node.z() - state.z;
+            if (dx * dx + dy * dy + dz * dz <= range * range) state.dirty = true;
+        }
+    }
+
+    /** Forget a player without firing events (quit, world change). */
+    public static void forget(Player player) {
+        VIEWERS.remove(player.getUniqueId());
+    }
+
+    /** Node the player currently hovers, or null. */
+    public static BlockDisplayNode hovered(Player player) {
+        ViewerState state = player == null ? null : VIEWERS.get(player.getUniqueId());
+        return state == null ? null : state.hovered;
+    }
+
+    private static void hover(Player player, ViewerState state, Location eye, Vector dir, NodeBvh.Hit hit) {
+        BlockDisplayNode next = hit == null ? null : hit.node();
+        if (next == state.hovered) return;
+
+        BlockDisplayNode previous = state.hovered;
+        state.hovered = next;
+
+        if (previous != null) {
+            fire(previous, new ClickContext(player, previous, ClickAction.HOVER_EXIT, null, null, player.isSneaking()));
+        }
+        if (next != null) {
+            Vector position = RaycastIndex.relativeHit(eye, dir, hit);
+            fire(next, new ClickContext(player, next, ClickAction.HOVER_ENTER, null, position, player.isSneaking()));
+        }
+    }
+
+    private static void fire(BlockDisplayNode node, ClickContext context) {
+        try {
+            node.fireHover(context);
+        } catch (RuntimeException e) {
+            // A broken handler must not take the rest of the tick with it
+            Bukkit.getLogger().log(Level.WARNING, "Hover handler failed", e);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // State holders
+    // ------------------------------------------------------------------------
+
+    private static final class ViewerState {
+        World world;
+        double x, y, z;
+        double dx, dy, dz;
+        /** Ray length of the last raycast. */
+        double reach;
+        /** A node near the player changed: raycast with the next tick even without movement. */
+        boolean dirty;
+        BlockDisplayNode hovered;
+
+        boolean needsRaycast(World world, Location eye, Vector dir) {
+            if (dirty || this.world != world) return true;
+
+            double mx = x - eye.getX();
+            double my = y - eye.getY();
+            double mz = z - eye.getZ();
+            if (mx * mx + my * my + mz * mz > RECHECK_DISTANCE * RECHECK_DISTANCE) return true;
+
+            return dx * dir.getX() + dy * dir.getY() + dz * dir.getZ() < RECHECK_COS;
+        }
+
+        void remember(World world, Location eye, Vector dir, double reach) {
+            this.dirty = false;
+            this.world = world;
+            this.x = eye.getX();
+            this.y = eye.getY();
+            this.z = eye.getZ();
+            this.dx = dir.getX();
+            this.dy = dir.getY();
+            this.dz = dir.getZ();
+            this.reach = reach;
+        }
+    }
+}
@@ -284,11 +284,7 @@ public class BreezeToolListener implements Listener {
         if (markers == null || markers.size() != 8) {
             // (Re)create markers
             if (markers != null) {
-                for (BlockDisplayNode node : markers) {
-                    if (node != null) {
-                        node.despawn(viewers);
-                    }
-                }
+                BlockDisplayNode.despawnAll(markers, viewers);
             }
 
             markers = new ArrayList<>(8);
@@ -321,7 +317,9 @@ public class BreezeToolListener implements Listener {
         BlockDisplayNode node = new BlockDisplayNode()
                 .location(loc)
                 .size(size)
-                .material(Material.COAL_BLOCK);
+                .material(Material.COAL_BLOCK)
+                // Glide with the cube edges instead of jumping on every resize
+                .moveMode(BlockDisplayNode.MoveMode.TRANSLATION);
 
         node.glow(Color.BLACK.asRGB());
         node.spawn(viewers);
@@ -332,19 +330,17 @@ public class BreezeToolListener implements Listener {
         UUID uuid = player.getUniqueId();
         List<Player> viewers = List.of(player);
 
+        // Cube edges + corner markers, removed with a single packet
+        List<BlockDisplayNode> nodes = new ArrayList<>(20);
         DisplayCube cube = activeCubes.remove(uuid);
         if (cube != null) {
-            cube.despawn(viewers);
+            nodes.addAll(cube.getNodes());
         }
-
-        List<BlockDisplayNode> nodes = activeMarkers.remove(uuid);
-        if (nodes != null) {
-            for (BlockDisplayNode node : nodes) {
-                if (node != null) {
-                    node.despawn(viewers);
-                }
-            }
+        List<BlockDisplayNode> markers = activeMarkers.remove(uuid);
+        if (markers != null) {
+            nodes.addAll(markers);
         }
+        BlockDisplayNode.despawnAll(nodes, viewers);
 
         if (clearRegion) {
             activeRegions.remove(uuid);
@@ -1,10 +1,13 @@
 package de.terranova.terraRenderer.refactor.Listener;
 
-import de.terranova.terraRenderer.refactor.BlockDisplayNode;
+import de.terranova.terraRenderer.refactor.ClickQueue;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import net.minecraft.network.protocol.game.ServerboundInteractPacket;
+import net.minecraft.network.protocol.game.ServerboundSwingPacket;
+import net.minecraft.network.protocol.game.ServerboundUseItemOnPacket;
+import net.minecraft.network.protocol.game.ServerboundUseItemPacket;
 import org.bukkit.craftbukkit.entity.CraftPlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -14,8 +17,10 @@ import org.bukkit.event.player.PlayerQuitEvent;
 
 /**
  * Installs a Netty handler per player to intercept ServerboundInteractPacket.
- * If the packet's entityId matches one of our hitbox entities, we forward the
- * click to BlockDisplayNode.handlePacketClick(...).
+ * If the packet's entityId matches one of our hitbox entities, the click is queued
+ * in the ClickQueue; its handler runs on the main thread with the next tick.
+ * Swing and use-item packets are queued too, for nodes in ClickMode.RAYCAST.
+ * Packets are always passed on to the server.
  */
 public class DisplayPacketListener implements Listener {
 
@@ -48,8 +53,13 @@ public class DisplayPacketListener implements Listener {
             @Override
             public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
                 if (msg instanceof ServerboundInteractPacket packet) {
-                    int entityId = packet.getEntityId();
-                    BlockDisplayNode.handlePacketClick(entityId, player);
+                    ClickQueue.offer(packet, player);
+                } else if (msg instanceof ServerboundSwingPacket packet) {
+                    ClickQueue.offer(packet, player);
+                } else if (msg instanceof ServerboundUseItemPacket packet) {
+                    ClickQueue.offer(packet, player);
+                } else if (msg instanceof ServerboundUseItemOnPacket packet) {
+                    ClickQueue.offer(packet, player);
                 }
                 super.channelRead(ctx, msg);
             }
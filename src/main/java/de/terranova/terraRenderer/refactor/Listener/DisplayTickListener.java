@@ -0,0 +1,65 @@
+package de.terranova.terraRenderer.refactor.Listener;
+
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
+import de.terranova.terraRenderer.refactor.ClickQueue;
+import de.terranova.terraRenderer.refactor.DisplayAnimator;
+import de.terranova.terraRenderer.refactor.DisplayBatch;
+import de.terranova.terraRenderer.refactor.DisplayPacketQueue;
+import de.terranova.terraRenderer.refactor.DisplayRegistry;
+import de.terranova.terraRenderer.refactor.HitboxTracker;
+import de.terranova.terraRenderer.refactor.HoverTracker;
+import de.terranova.terraRenderer.refactor.RenderMetrics;
+import de.terranova.terraRenderer.refactor.RenderScheduler;
+import de.terranova.terraRenderer.refactor.ViewRegistry;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Drives the per-tick work of the renderer.
+ * At the end of every server tick queued clicks are handled, view culling is refreshed
+ * for players that crossed a chunk section, hover is raycast for players that moved or
+ * looked around, due animation keyframes are applied, dirty nodes are flushed once,
+ * hitboxes are handed out to players within reach, then all queued display packets are
+ * sent and the tick's metrics are closed.
+ */
+public class DisplayTickListener implements Listener {
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onTickEnd(ServerTickEndEvent event) {
+        ClickQueue.drain();
+        DisplayRegistry.tick();
+        ViewRegistry.tick();
+        HoverTracker.tick();
+        DisplayAnimator.tick();
+        RenderScheduler.flush();
+        HitboxTracker.tick();
+        DisplayPacketQueue.flush();
+        RenderMetrics.endTick();
+    }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent event) {
+        ViewRegistry.forget(event.getPlayer());
+        HitboxTracker.forget(event.getPlayer());
+        HoverTracker.forget(event.getPlayer());
+        DisplayRegistry.forget(event.getPlayer());
+        DisplayBatch.forget(event.getPlayer());
+        DisplayPacketQueue.discard(event.getPlayer());
+        RenderMetrics.forget(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onWorldChange(PlayerChangedWorldEvent event) {
+        // The client dropped all entities of the old world; packets still queued for them
+        // would spawn ghosts in the new world that nothing removes
+        ViewRegistry.forget(event.getPlayer());
+        HitboxTracker.forget(event.getPlayer());
+        HoverTracker.forget(event.getPlayer());
+        DisplayRegistry.forget(event.getPlayer());
+        DisplayBatch.forget(event.getPlayer());
+        DisplayPacketQueue.discard(event.getPlayer());
+    }
+}
@@ -0,0 +1,339 @@
+package de.terranova.terraRenderer.refactor;
+
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import org.joml.Quaternionf;
+import org.joml.Vector3d;
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Bounding volume hierarchy over the oriented boxes of nodes, for raycasts.
+ *
+ * - Every node is an oriented box: center = node position, half extents = scale / 2,
+ *   orientation = node rotation (the same box the client renders, without animation pose)
+ * - Inner nodes hold the axis-aligned bounds of their children; built top-down by
+ *   splitting at the median of the longest axis, at most LEAF_SIZE boxes per leaf
+ * - raycast(...) visits the nearer child first and skips everything behind the closest
+ *   hit so far, so a ray costs O(log n) box tests for n nodes
+ * - refit(node) re-reads one moved/resized/rotated box and widens the bounds on its path
+ *   to the root, O(log n); added or removed nodes need a new tree (see RaycastIndex)
+ *
+ * Doubles throughout, world coordinates are too large for float precision.
+ */
+final class NodeBvh {
+
+    private static final int LEAF_SIZE = 4;
+
+    // Boxes (indexed by item)
+    private final BlockDisplayNode[] items;
+    private final double[] centers;      // 3 per item
+    private final float[] halfExtents;   // 3 per item
+    private final Quaternionf[] inverseRotations;
+    private final double[] itemBounds;   // 6 per item: world AABB of the oriented box
+    private final Reference2IntOpenHashMap<BlockDisplayNode> itemOf;
+    /** Leaf tree node holding each item. */
+    private final int[] leafOf;
+
+    // Tree (indexed by tree node), leaves reference [first, first + count) in order
+    private final int[] order;
+    private final double[] bounds;       // 6 per tree node: min xyz, max xyz
+    private final int[] left, right, first, count, parent;
+    private int treeSize;
+
+    // Scratch for raycasts (main thread only)
+    private final Vector3d localOrigin = new Vector3d();
+    private final Vector3f localDir = new Vector3f();
+
+    NodeBvh(List<BlockDisplayNode> nodes) {
+        int n = nodes.size();
+        items = nodes.toArray(new BlockDisplayNode[0]);
+        centers = new double[n * 3];
+        halfExtents = new float[n * 3];
+        inverseRotations = new Quaternionf[n];
+        itemBounds = new double[n * 6];
+        itemOf = new Reference2IntOpenHashMap<>(n);
+        itemOf.defaultReturnValue(-1);
+        leafOf = new int[n];
+        order = new int[n];
+
+        // NaN never equals the node's position, so readBox fills every item
+        Arrays.fill(centers, Double.NaN);
+        for (int i = 0; i < n; i++) {
+            inverseRotations[i] = new Quaternionf();
+            readBox(i);
+            itemOf.put(items[i], i);
+            order[i] = i;
+        }
+
+        int capacity = Math.max(1, 2 * n);
+        bounds = new double[capacity * 6];
+        left = new int[capacity];
+        right = new int[capacity];
+        first = new int[capacity];
+        count = new int[capacity];
+        parent = new int[capacity];
+
+        if (n > 0) build(0, n, -1);
+    }
+
+    int size() {
+        return items.length;
+    }
+
+    /**
+     * Re-read the box of a node after it moved, was resized or rotated, and fix the bounds
+     * from its leaf up to the root. The tree shape stays, so it slowly loses quality with
+     * large moves; RaycastIndex rebuilds after many refits.
+     *
+     * @return false if the node is not in this tree or its box did not change
+     */
+    boolean refit(BlockDisplayNode node) {
+        int item = itemOf.getInt(node);
+        if (item == -1 || !readBox(item)) return false;
+
+        for (int index = leafOf[item]; index != -1; index = parent[index]) {
+            if (left[index] == -1) {
+                leafBounds(index);
+            } else {
+                union(index, left[index], right[index]);
+            }
+        }
+        return true;
+    }
+
+    // ------------------------------------------------------------------------
+    // Boxes
+    // ------------------------------------------------------------------------
+
+    /** Load item i's box from its node. @return whether anything changed */
+    private boolean readBox(int i) {
+        BlockDisplayNode node = items[i];
+        Vector3f scale = node.getScale();
+        Quaternionf inverse = node.getRotation().conjugate();
+        float hx = Math.abs(scale.x) * 0.5f, hy = Math.abs(scale.y) * 0.5f, hz = Math.abs(scale.z) * 0.5f;
+
+        if (centers[i * 3] == node.x() && centers[i * 3 + 1] == node.y() && centers[i * 3 + 2] == node.z()
+                && halfExtents[i * 3] == hx && halfExtents[i * 3 + 1] == hy && halfExtents[i * 3 + 2] == hz
+                && inverseRotations[i].equals(inverse)) {
+            return false;
+        }
+
+        centers[i * 3] = node.x();
+        centers[i * 3 + 1] = node.y();
+        centers[i * 3 + 2] = node.z();
+        halfExtents[i * 3] = hx;
+        halfExtents[i * 3 + 1] = hy;
+        halfExtents[i * 3 + 2] = hz;
+        inverseRotations[i].set(inverse);
+
+        itemBounds(i, inverse.conjugate());
+        return true;
+    }
+
+    // ------------------------------------------------------------------------
+    // Build
+    // ------------------------------------------------------------------------
+
+    /** World-space AABB of item i's oriented box. */
+    private void itemBounds(int i, Quaternionf rotation) {
+        double[] out = itemBounds;
+        // |R| * h per axis, R = rotation matrix columns
+        float hx = halfExtents[i * 3], hy = halfExtents[i * 3 + 1], hz = halfExtents[i * 3 + 2];
+        Vector3f ax = rotation.transform(new Vector3f(hx, 0, 0));
+        Vector3f ay = rotation.transform(new Vector3f(0, hy, 0));
+        Vector3f az = rotation.transform(new Vector3f(0, 0, hz));
+        double ex = Math.abs(ax.x) + Math.abs(ay.x) + Math.abs(az.x);
+        double ey = Math.abs(ax.y) + Math.abs(ay.y) + Math.abs(az.y);
+        double ez = Math.abs(ax.z) + Math.abs(ay.z) + Math.abs(az.z);
+
+        out[i * 6] = centers[i * 3] - ex;
+        out[i * 6 + 1] = centers[i * 3 + 1] - ey;
+        out[i * 6 + 2] = centers[i * 3 + 2] - ez;
+        out[i * 6 + 3] = centers[i * 3] + ex;
+        out[i * 6 + 4] = centers[i * 3 + 1] + ey;
+        out[i * 6 + 5] = centers[i * 3 + 2] + ez;
+    }
+
+    /** Build the subtree over order[start, end), returns its tree node index. */
+    private int build(int start, int end, int parentIndex) {
+        int index = treeSize++;
+        parent[index] = parentIndex;
+        first[index] = start;
+        count[index] = end - start;
+        int b = index * 6;
+        leafBounds(index);
+
+        if (end - start <= LEAF_SIZE) {
+            left[index] = right[index] = -1;
+            for (int i = start; i < end; i++) {
+                leafOf[order[i]] = index;
+            }
+            return index;
+        }
+
+        // Split at the median center of the longest axis
+        int axis = 0;
+        double longest = -1;
+        for (int k = 0; k < 3; k++) {
+            double extent = bounds[b + 3 + k] - bounds[b + k];
+            if (extent > longest) {
+                longest = extent;
+                axis = k;
+            }
+        }
+        int mid = (start + end) >>> 1;
+        select(start, end - 1, mid, axis);
+
+        left[index] = build(start, mid, index);
+        right[index] = build(mid, end, index);
+        return index;
+    }
+
+    /** Bounds of tree node index = union of the items in order[first, first + count). */
+    private void leafBounds(int index) {
+        int b = index * 6;
+        bounds[b] = bounds[b + 1] = bounds[b + 2] = Double.POSITIVE_INFINITY;
+        bounds[b + 3] = bounds[b + 4] = bounds[b + 5] = Double.NEGATIVE_INFINITY;
+        for (int i = first[index], end = first[index] + count[index]; i < end; i++) {
+            int item = order[i] * 6;
+            for (int k = 0; k < 3; k++) {
+                bounds[b + k] = Math.min(bounds[b + k], itemBounds[item + k]);
+                bounds[b + 3 + k] = Math.max(bounds[b + 3 + k], itemBounds[item + 3 + k]);
+            }
+        }
+    }
+
+    private void union(int index, int a, int c) {
+        int b = index * 6, ba = a * 6, bc = c * 6;
+        for (int k = 0; k < 3; k++) {
+            bounds[b + k] = Math.min(bounds[ba + k], bounds[bc + k]);
+            bounds[b + 3 + k] = Math.max(bounds[ba + 3 + k], bounds[bc + 3 + k]);
+        }
+    }
+
+    /** Quickselect: order[k] gets the item with the k-th smallest center on the axis. */
+    private void select(int lo, int hi, int k, int axis) {
+        while (lo < hi) {
+            double pivot = centers[order[(lo + hi) >>> 1] * 3 + axis];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (centers[order[i] * 3 + axis] < pivot) i++;
+                while (centers[order[j] * 3 + axis] > pivot) j--;
+                if (i <= j) {
+                    int tmp = order[i];
+                    order[i++] = order[j];
+                    order[j--] = tmp;
+                }
+            }
+            if (k <= j) hi = j;
+            else if (k >= i) lo = i;
+            else return;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Raycast
+    // ------------------------------------------------------------------------
+
+    /** Closest hit of a raycast, distance along the (normalized) direction. */
+    record Hit(BlockDisplayNode node, double distance) {}
+
+    /**
+     * Closest box hit by the ray within maxDistance whose node passes the filter, or null.
+     *
+     * @param dx direction, normalized
+     */
+    Hit raycast(double ox, double oy, double oz,
+                double dx, double dy, double dz,
+                double maxDistance,
+                Predicate<BlockDisplayNode> filter) {
+        if (treeSize == 0) return null;
+
+        double ix = 1d / dx, iy = 1d / dy, iz = 1d / dz;
+        double best = maxDistance;
+        int bestItem = -1;
+
+        int[] stack = new int[64];
+        int sp = 0;
+        stack[sp++] = 0;
+
+        while (sp > 0) {
+            int index = stack[--sp];
+            if (slab(index, ox, oy, oz, ix, iy, iz, best) == Double.POSITIVE_INFINITY) continue;
+
+            if (left[index] == -1) {
+                for (int i = first[index], end = first[index] + count[index]; i < end; i++) {
+                    int item = order[i];
+                    double t = hitBox(item, ox, oy, oz, dx, dy, dz);
+                    if (t < best && filter.test(items[item])) {
+                        best = t;
+                        bestItem = item;
+                    }
+                }
+                continue;
+            }
+
+            // Push the farther child first, so the nearer one is visited next
+            double tl = slab(left[index], ox, oy, oz, ix, iy, iz, best);
+            double tr = slab(right[index], ox, oy, oz, ix, iy, iz, best);
+            if (sp + 2 > stack.length) stack = Arrays.copyOf(stack, stack.length * 2);
+            if (tl <= tr) {
+                if (tr != Double.POSITIVE_INFINITY) stack[sp++] = right[index];
+                if (tl != Double.POSITIVE_INFINITY) stack[sp++] = left[index];
+            } else {
+                if (tl != Double.POSITIVE_INFINITY) stack[sp++] = left[index];
+                if (tr != Double.POSITIVE_INFINITY) stack[sp++] = right[index];
+            }
+        }
+
+        return bestItem == -1 ? null : new Hit(items[bestItem], best);
+    }
+
+    /** Entry distance of the ray into a tree node's AABB, +inf if missed or beyond maxT. */
+    private double slab(int index, double ox, double oy, double oz,
+                        double ix, double iy, double iz, double maxT) {
+        int b = index * 6;
+        double t1 = (bounds[b] - ox) * ix, t2 = (bounds[b + 3] - ox) * ix;
+        double tmin = Math.min(t1, t2), tmax = Math.max(t1, t2);
+
+        t1 = (bounds[b + 1] - oy) * iy;
+        t2 = (bounds[b + 4] - oy) * iy;
+        tmin = Math.max(tmin, Math.min(t1, t2));
+        tmax = Math.min(tmax, Math.max(t1, t2));
+
+        t1 = (bounds[b + 2] - oz) * iz;
+        t2 = (bounds[b + 5] - oz) * iz;
+        tmin = Math.max(tmin, Math.min(t1, t2));
+        tmax = Math.min(tmax, Math.max(t1, t2));
+
+        if (tmax < Math.max(tmin, 0d) || tmin > maxT) return Double.POSITIVE_INFINITY;
+        return Math.max(tmin, 0d);
+    }
+
+    /** Ray vs. oriented box of an item: entry distance, or +inf. */
+    private double hitBox(int item, double ox, double oy, double oz, double dx, double dy, double dz) {
+        // Ray in the box frame (relative to the center first, then unrotated)
+        Quaternionf inverse = inverseRotations[item];
+        inverse.transform(localOrigin.set(ox - centers[item * 3], oy - centers[item * 3 + 1], oz - centers[item * 3 + 2]));
+        inverse.transform(localDir.set((float) dx, (float) dy, (float) dz));
+
+        double tmin = 0d, tmax = Double.POSITIVE_INFINITY;
+        for (int k = 0; k < 3; k++) {
+            double o = localOrigin.get(k);
+            double d = localDir.get(k);
+            double h = halfExtents[item * 3 + k];
+            if (Math.abs(d) < 1e-9) {
+                if (o < -h || o > h) return Double.POSITIVE_INFINITY;
+                continue;
+            }
+            double t1 = (-h - o) / d, t2 = (h - o) / d;
+            tmin = Math.max(tmin, Math.min(t1, t2));
+            tmax = Math.min(tmax, Math.max(t1, t2));
+            if (tmax < tmin) return Double.POSITIVE_INFINITY;
+        }
+        return tmin;
+    }
+}
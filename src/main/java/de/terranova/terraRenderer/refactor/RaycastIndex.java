@@ -0,0 +1,182 @@
+package de.terranova.terraRenderer.refactor;
+
+import org.bukkit.FluidCollisionMode;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.util.Vector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Spatial index for server-side raycasts against nodes, one NodeBvh per world.
+ *
+ * - Holds spawned nodes with a hover handler (HoverTracker) or a click handler in
+ *   ClickMode.RAYCAST (ClickQueue), see BlockDisplayNode.needsRaycast()
+ * - Added or removed nodes mark the world dirty; its tree is rebuilt lazily before the next
+ *   raycast in that world, so at most once per tick
+ * - A node whose box moved, was resized or rotated only refits its leaf (O(log n)); other
+ *   changes (glow, block state, new viewers) leave the tree alone. After more refits than
+ *   nodes the tree is rebuilt, as refitted bounds grow loose
+ * - Every change tells the HoverTracker, which re-raycasts only the players near the node
+ * - A raycast costs O(log n) box tests; the filter picks which nodes count as hits
+ *
+ * Main thread only, except hasClickTargets().
+ */
+final class RaycastIndex {
+
+    /** World UUID -> nodes of that world and their tree. */
+    private static final Map<UUID, WorldIndex> WORLDS = new HashMap<>();
+
+    /** Indexed node -> world it is indexed in. */
+    private static final Map<BlockDisplayNode, UUID> NODES = new IdentityHashMap<>();
+
+    /** Indexed nodes that are raycast-clickable (the rest only hover). */
+    private static final Set<BlockDisplayNode> CLICK_TARGETS = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /** CLICK_TARGETS is not empty; lets the Netty threads skip swing/use packets. */
+    private static volatile boolean clickTargets;
+
+    /** Refits (per world) before the tree is rebuilt anyway, at least. */
+    private static final int MIN_REFITS_BEFORE_REBUILD = 64;
+
+    private RaycastIndex() {}
+
+    // ------------------------------------------------------------------------
+    // Nodes
+    // ------------------------------------------------------------------------
+
+    /** The node was spawned (or got new viewers, handlers or click mode) and needs raycasts. */
+    static void track(BlockDisplayNode node) {
+        if (node.world() == null) return;
+        if (node.isRaycastClickable()) CLICK_TARGETS.add(node);
+        else CLICK_TARGETS.remove(node);
+        clickTargets = !CLICK_TARGETS.isEmpty();
+
+        // Already indexed: new viewers or handlers, the box is unchanged
+        if (!NODES.containsKey(node)) {
+            UUID world = node.world().getUID();
+            NODES.put(node, world);
+            WorldIndex index = WORLDS.computeIfAbsent(world, w -> new WorldIndex());
+            index.nodes.add(node);
+            index.dirty = true;
+        }
+        HoverTracker.markAffected(node);
+    }
+
+    /** The node was released or no longer needs raycasts. */
+    static void untrack(BlockDisplayNode node) {
+        UUID world = NODES.remove(node);
+        if (world == null) return;
+
+        WorldIndex index = WORLDS.get(world);
+        index.nodes.remove(node);
+        index.dirty = true;
+        if (index.nodes.isEmpty()) WORLDS.remove(world);
+        CLICK_TARGETS.remove(node);
+        clickTargets = !CLICK_TARGETS.isEmpty();
+        HoverTracker.markAffected(node);
+    }
+
+    /**
+     * Called by nodes after a flushed update changed their position or display data.
+     * Only a changed box (position, scale, rotation) touches the tree.
+     */
+    static void onChanged(BlockDisplayNode node) {
+        UUID indexed = NODES.get(node);
+        if (indexed == null) return;
+
+        if (!node.world().getUID().equals(indexed)) {
+            untrack(node);
+            track(node);
+            return;
+        }
+
+        WorldIndex index = WORLDS.get(indexed);
+        if (index.dirty || index.bvh == null) {
+            // The pending rebuild reads the new box anyway
+            HoverTracker.markAffected(node);
+            return;
+        }
+        if (!index.bvh.refit(node)) return;
+
+        if (++index.refits > Math.max(MIN_REFITS_BEFORE_REBUILD, index.nodes.size())) index.dirty = true;
+        HoverTracker.markAffected(node);
+    }
+
+    /** Safe from any thread; false means no swing/use packet can hit a node. */
+    static boolean hasClickTargets() {
+        return clickTargets;
+    }
+
+    // ------------------------------------------------------------------------
+    // Queries
+    // ------------------------------------------------------------------------
+
+    /** Whether no node is indexed in any world. */
+    static boolean isEmpty() {
+        return WORLDS.isEmpty();
+    }
+
+    /** Whether any node of the world is indexed. */
+    static boolean hasNodes(World world) {
+        return WORLDS.containsKey(world.getUID());
+    }
+
+    /**
+     * Closest node along the look direction, within the player's interaction range, that
+     * the player views and that passes the filter; null if none.
+     */
+    static NodeBvh.Hit raycast(Player player, Location eye, Vector dir, Predicate<BlockDisplayNode> filter) {
+        WorldIndex index = WORLDS.get(eye.getWorld().getUID());
+        if (index == null) return null;
+        index.rebuildIfDirty();
+
+        double reach = HitboxTracker.reach(player);
+        return index.bvh.raycast(eye.getX(), eye.getY(), eye.getZ(),
+                dir.getX(), dir.getY(), dir.getZ(), reach,
+                node -> filter.test(node) && node.isViewer(player));
+    }
+
+    /** Whether a block (not passable, fluids ignored) lies between the eye and the hit. */
+    static boolean blocked(Location eye, Vector dir, NodeBvh.Hit hit) {
+        return eye.getWorld().rayTraceBlocks(eye, dir, hit.distance(), FluidCollisionMode.NEVER, true) != null;
+    }
+
+    /** Hit point relative to the hit node's position. */
+    static Vector relativeHit(Location eye, Vector dir, NodeBvh.Hit hit) {
+        double t = hit.distance();
+        BlockDisplayNode node = hit.node();
+        return new Vector(
+                eye.getX() + dir.getX() * t - node.x(),
+                eye.getY() + dir.getY() * t - node.y(),
+                eye.getZ() + dir.getZ() * t - node.z()
+        );
+    }
+
+    // ------------------------------------------------------------------------
+    // State holders
+    // ------------------------------------------------------------------------
+
+    private static final class WorldIndex {
+        final Set<BlockDisplayNode> nodes = Collections.newSetFromMap(new IdentityHashMap<>());
+        NodeBvh bvh;
+        /** Nodes were added or removed (or refits piled up): rebuild before the next raycast. */
+        boolean dirty;
+        int refits;
+
+        void rebuildIfDirty() {
+            if (!dirty && bvh != null) return;
+            dirty = false;
+            refits = 0;
+            bvh = new NodeBvh(new ArrayList<>(nodes));
+        }
+    }
+}
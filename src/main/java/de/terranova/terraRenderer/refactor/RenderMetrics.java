@@ -0,0 +1,379 @@
+package de.terranova.terraRenderer.refactor;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientboundAddEntityPacket;
+import net.minecraft.network.protocol.game.ClientboundRemoveEntitiesPacket;
+import net.minecraft.network.protocol.game.ClientboundSetEntityDataPacket;
+import net.minecraft.network.protocol.game.ClientboundTeleportEntityPacket;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for the render pipeline, collected per tick and per player.
+ *
+ * - Packets sent by type and their estimated bytes (counted when the queue is flushed)
+ * - Live nodes (spawned for at least one viewer) and live hitboxes
+ * - node.update(...) calls vs. flushes actually done by the RenderScheduler
+ * - Time spent diffing display state and creating/queueing packets
+ *
+ * endTick() closes a tick: it stores a Snapshot (last 20 are kept for /terrarenderer stats)
+ * and commits the JFR events RenderTick and RenderPlayerTick, so render cost can be lined up
+ * with MSPT spikes in a flight recording.
+ */
+public final class RenderMetrics {
+
+    public enum PacketType { ADD_ENTITY, ENTITY_DATA, TELEPORT, REMOVE_ENTITIES, OTHER }
+
+    private static final PacketType[] TYPES = PacketType.values();
+
+    /** Ticks kept in the history (one second). */
+    public static final int WINDOW = 20;
+
+    // Current tick; update calls and timings may come from other threads
+    private static final LongAdder UPDATE_CALLS = new LongAdder();
+    private static final LongAdder FLUSHES = new LongAdder();
+    private static final LongAdder APPLY_SETTINGS_NANOS = new LongAdder();
+    private static final LongAdder PACKET_NANOS = new LongAdder();
+
+    // Current tick, main thread only (written while the queue is flushed)
+    private static final int[] tickPackets = new int[TYPES.length];
+    private static long tickBytes;
+
+    /** Player UUID -> counters (main thread only). */
+    private static final Map<UUID, PlayerCounters> PLAYERS = new HashMap<>();
+
+    private static final Snapshot[] HISTORY = new Snapshot[WINDOW];
+    private static int historySize;
+    private static int historyIndex;
+
+    private static long totalPackets;
+    private static long totalBytes;
+    private static long ticks;
+
+    private RenderMetrics() {}
+
+    // ------------------------------------------------------------------------
+    // Recording
+    // ------------------------------------------------------------------------
+
+    static void updateCalled() {
+        UPDATE_CALLS.increment();
+    }
+
+    static void flushed() {
+        FLUSHES.increment();
+    }
+
+    static void applySettingsNanos(long nanos) {
+        APPLY_SETTINGS_NANOS.add(nanos);
+    }
+
+    static void packetNanos(long nanos) {
+        PACKET_NANOS.add(nanos);
+    }
+
+    /** One packet handed to a player's connection (main thread). */
+    static void packetSent(Player player, Packet<?> packet) {
+        int type = typeOf(packet).ordinal();
+        tickPackets[type]++;
+
+        PlayerCounters counters = PLAYERS.computeIfAbsent(player.getUniqueId(), uuid -> new PlayerCounters());
+        counters.tickPackets++;
+        counters.tickPacketsByType[type]++;
+    }
+
+    /** Estimated bytes handed to a player's connection (main thread). */
+    static void bytesSent(Player player, int bytes) {
+        tickBytes += bytes;
+        PLAYERS.computeIfAbsent(player.getUniqueId(), uuid -> new PlayerCounters()).tickBytes += bytes;
+    }
+
+    /**
+     * Close the current tick: store its snapshot, commit JFR events and reset the counters.
+     * Called once per tick after the packet queue was flushed.
+     */
+    public static void endTick() {
+        int[] packets = tickPackets.clone();
+        int packetSum = 0;
+        for (int count : packets) packetSum += count;
+
+        Snapshot snapshot = new Snapshot(
+                packets,
+                packetSum,
+                tickBytes,
+                DisplayRegistry.nodeCount(),
+                DisplayRegistry.hitboxCount(),
+                UPDATE_CALLS.sumThenReset(),
+                FLUSHES.sumThenReset(),
+                APPLY_SETTINGS_NANOS.sumThenReset(),
+                PACKET_NANOS.sumThenReset(),
+                DisplayPacketQueue.getDeferredOpsLastFlush()
+        );
+
+        HISTORY[historyIndex] = snapshot;
+        historyIndex = (historyIndex + 1) % WINDOW;
+        historySize = Math.min(WINDOW, historySize + 1);
+
+        totalPackets += packetSum;
+        totalBytes += tickBytes;
+        ticks++;
+
+        commitTickEvent(snapshot);
+
+        for (Map.Entry<UUID, PlayerCounters> entry : PLAYERS.entrySet()) {
+            PlayerCounters counters = entry.getValue();
+            if (counters.tickPackets == 0 && counters.tickBytes == 0) continue;
+
+            commitPlayerEvent(entry.getKey(), counters);
+            counters.endTick();
+        }
+
+        Arrays.fill(tickPackets, 0);
+        tickBytes = 0;
+    }
+
+    /** Drop the counters of a player (quit). */
+    public static void forget(Player player) {
+        if (player != null) PLAYERS.remove(player.getUniqueId());
+    }
+
+    // ------------------------------------------------------------------------
+    // Reading
+    // ------------------------------------------------------------------------
+
+    /** Snapshot of the last finished tick, or null before the first one. */
+    public static Snapshot lastTick() {
+        if (historySize == 0) return null;
+        return HISTORY[(historyIndex - 1 + WINDOW) % WINDOW];
+    }
+
+    /** Sum of the last WINDOW ticks (live nodes/hitboxes: latest value). */
+    public static Snapshot lastSecond() {
+        Snapshot last = lastTick();
+        if (last == null) return null;
+
+        int[] packets = new int[TYPES.length];
+        int packetSum = 0;
+        long bytes = 0, updateCalls = 0, flushes = 0, applyNanos = 0, packetNanos = 0;
+        int deferred = 0;
+        for (int i = 0; i < historySize; i++) {
+            Snapshot s = HISTORY[i];
+            for (int t = 0; t < packets.length; t++) packets[t] += s.packets[t];
+            packetSum += s.packetCount;
+            bytes += s.bytes;
+            updateCalls += s.updateCalls;
+            flushes += s.flushes;
+            applyNanos += s.applySettingsNanos;
+            packetNanos += s.packetNanos;
+            deferred += s.deferredOps;
+        }
+        return new Snapshot(packets, packetSum, bytes, last.liveNodes, last.liveHitboxes,
+                updateCalls, flushes, applyNanos, packetNanos, deferred);
+    }
+
+    public static int getHistorySize() {
+        return historySize;
+    }
+
+    public static long getTotalPackets() {
+        return totalPackets;
+    }
+
+    public static long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public static long getTicks() {
+        return ticks;
+    }
+
+    /** Counters of one player, or null if nothing was sent to them yet. */
+    public static PlayerCounters player(Player player) {
+        return player == null ? null : PLAYERS.get(player.getUniqueId());
+    }
+
+    // ------------------------------------------------------------------------
+    // Internals
+    // ------------------------------------------------------------------------
+
+    private static PacketType typeOf(Packet<?> packet) {
+        if (packet instanceof ClientboundSetEntityDataPacket) return PacketType.ENTITY_DATA;
+        if (packet instanceof ClientboundTeleportEntityPacket) return PacketType.TELEPORT;
+        if (packet instanceof ClientboundAddEntityPacket) return PacketType.ADD_ENTITY;
+        if (packet instanceof ClientboundRemoveEntitiesPacket) return PacketType.REMOVE_ENTITIES;
+        return PacketType.OTHER;
+    }
+
+    private static void commitTickEvent(Snapshot s) {
+        RenderTickEvent event = new RenderTickEvent();
+        if (!event.shouldCommit()) return;
+
+        event.packets = s.packetCount;
+        event.addEntityPackets = s.packets(PacketType.ADD_ENTITY);
+        event.entityDataPackets = s.packets(PacketType.ENTITY_DATA);
+        event.teleportPackets = s.packets(PacketType.TELEPORT);
+        event.removePackets = s.packets(PacketType.REMOVE_ENTITIES);
+        event.bytes = s.bytes;
+        event.liveNodes = s.liveNodes;
+        event.liveHitboxes = s.liveHitboxes;
+        event.updateCalls = s.updateCalls;
+        event.flushes = s.flushes;
+        event.applySettingsTime = s.applySettingsNanos;
+        event.packetTime = s.packetNanos;
+        event.deferredOps = s.deferredOps;
+        event.commit();
+    }
+
+    private static void commitPlayerEvent(UUID uuid, PlayerCounters counters) {
+        RenderPlayerTickEvent event = new RenderPlayerTickEvent();
+        if (!event.shouldCommit()) return;
+
+        Player player = Bukkit.getPlayer(uuid);
+        event.player = player == null ? uuid.toString() : player.getName();
+        event.packets = counters.tickPackets;
+        event.addEntityPackets = counters.tickPacketsByType[PacketType.ADD_ENTITY.ordinal()];
+        event.entityDataPackets = counters.tickPacketsByType[PacketType.ENTITY_DATA.ordinal()];
+        event.teleportPackets = counters.tickPacketsByType[PacketType.TELEPORT.ordinal()];
+        event.removePackets = counters.tickPacketsByType[PacketType.REMOVE_ENTITIES.ordinal()];
+        event.bytes = counters.tickBytes;
+        event.commit();
+    }
+
+    // ------------------------------------------------------------------------
+    // Data holders
+    // ------------------------------------------------------------------------
+
+    /** Counters of one tick (or a sum of ticks, see lastSecond()). */
+    public record Snapshot(int[] packets,
+                           int packetCount,
+                           long bytes,
+                           int liveNodes,
+                           int liveHitboxes,
+                           long updateCalls,
+                           long flushes,
+                           long applySettingsNanos,
+                           long packetNanos,
+                           int deferredOps) {
+
+        public int packets(PacketType type) {
+            return packets[type.ordinal()];
+        }
+    }
+
+    public static final class PlayerCounters {
+        private int tickPackets;
+        private final int[] tickPacketsByType = new int[TYPES.length];
+        private long tickBytes;
+        private int lastTickPackets;
+        private final int[] lastTickPacketsByType = new int[TYPES.length];
+        private long lastTickBytes;
+        private long totalPackets;
+        private final long[] totalPacketsByType = new long[TYPES.length];
+        private long totalBytes;
+        private int maxTickPackets;
+        private long maxTickBytes;
+
+        private void endTick() {
+            lastTickPackets = tickPackets;
+            lastTickBytes = tickBytes;
+            totalPackets += tickPackets;
+            totalBytes += tickBytes;
+            maxTickPackets = Math.max(maxTickPackets, tickPackets);
+            maxTickBytes = Math.max(maxTickBytes, tickBytes);
+            for (int t = 0; t < TYPES.length; t++) {
+                lastTickPacketsByType[t] = tickPacketsByType[t];
+                totalPacketsByType[t] += tickPacketsByType[t];
+            }
+            tickPackets = 0;
+            tickBytes = 0;
+            Arrays.fill(tickPacketsByType, 0);
+        }
+
+        /** Packets of the last tick in which anything was sent to the player. */
+        public int lastTickPackets() {
+            return lastTickPackets;
+        }
+
+        public int lastTickPackets(PacketType type) {
+            return lastTickPacketsByType[type.ordinal()];
+        }
+
+        public long totalPackets(PacketType type) {
+            return totalPacketsByType[type.ordinal()];
+        }
+
+        public long lastTickBytes() {
+            return lastTickBytes;
+        }
+
+        public long totalPackets() {
+            return totalPackets;
+        }
+
+        public long totalBytes() {
+            return totalBytes;
+        }
+
+        public int maxTickPackets() {
+            return maxTickPackets;
+        }
+
+        public long maxTickBytes() {
+            return maxTickBytes;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // JFR events
+    // ------------------------------------------------------------------------
+
+    @Name("de.terranova.terraRenderer.RenderTick")
+    @Label("Render Tick")
+    @Category("TerraRenderer")
+    @Description("Display packets and render work of one server tick")
+    @StackTrace(false)
+    static final class RenderTickEvent extends Event {
+        @Label("Packets") int packets;
+        @Label("Add Entity Packets") int addEntityPackets;
+        @Label("Entity Data Packets") int entityDataPackets;
+        @Label("Teleport Packets") int teleportPackets;
+        @Label("Remove Entities Packets") int removePackets;
+        @Label("Estimated Bytes") @DataAmount long bytes;
+        @Label("Live Nodes") int liveNodes;
+        @Label("Live Hitboxes") int liveHitboxes;
+        @Label("Update Calls") long updateCalls;
+        @Label("Flushes") long flushes;
+        @Label("Diff Time") @Timespan long applySettingsTime;
+        @Label("Packet Time") @Timespan long packetTime;
+        @Label("Deferred Operations") int deferredOps;
+    }
+
+    @Name("de.terranova.terraRenderer.RenderPlayerTick")
+    @Label("Render Player Tick")
+    @Category("TerraRenderer")
+    @Description("Display packets sent to one player in one server tick")
+    @StackTrace(false)
+    static final class RenderPlayerTickEvent extends Event {
+        @Label("Player") String player;
+        @Label("Packets") int packets;
+        @Label("Add Entity Packets") int addEntityPackets;
+        @Label("Entity Data Packets") int entityDataPackets;
+        @Label("Teleport Packets") int teleportPackets;
+        @Label("Remove Entities Packets") int removePackets;
+        @Label("Estimated Bytes") @DataAmount long bytes;
+    }
+}
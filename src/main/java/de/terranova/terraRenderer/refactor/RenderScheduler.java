@@ -0,0 +1,76 @@
+package de.terranova.terraRenderer.refactor;
+
+import org.bukkit.entity.Player;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tick-driven scheduler for node updates.
+ *
+ * - BlockDisplayNode.update(...) only marks the node dirty here
+ * - Once per tick every dirty node is flushed a single time with its final state,
+ *   to the union of all requested viewers (plus the node's current viewers, so players
+ *   spawned in between get the change too) and with the longest requested interpolation
+ * - Packet volume therefore scales with changed nodes, not with update() calls
+ */
+public final class RenderScheduler {
+
+    private static final Object LOCK = new Object();
+
+    /** Dirty nodes in first-marked order (guarded by LOCK, swapped on flush). */
+    private static Map<BlockDisplayNode, PendingUpdate> dirty = new LinkedHashMap<>();
+
+    private RenderScheduler() {}
+
+    /**
+     * Mark a node dirty for the given viewers. Repeated calls within one tick are merged.
+     */
+    static void markDirty(BlockDisplayNode node,
+                          Collection<Player> players,
+                          int interpolationDurationTicks,
+                          int interpolationDelayTicks) {
+        synchronized (LOCK) {
+            PendingUpdate pending = dirty.computeIfAbsent(node, n -> new PendingUpdate());
+            pending.viewers.addAll(players);
+            pending.interpolationTicks = Math.max(pending.interpolationTicks, interpolationDurationTicks);
+            pending.delayTicks = Math.max(pending.delayTicks, interpolationDelayTicks);
+        }
+    }
+
+    /**
+     * Drop a pending update, e.g. because the node was despawned in the same tick.
+     */
+    static void cancel(BlockDisplayNode node) {
+        synchronized (LOCK) {
+            dirty.remove(node);
+        }
+    }
+
+    /**
+     * Sends one update per dirty node. Called once per tick from the main thread,
+     * right before the packet queue is flushed.
+     */
+    public static void flush() {
+        Map<BlockDisplayNode, PendingUpdate> pending;
+        synchronized (LOCK) {
+            if (dirty.isEmpty()) return;
+            pending = dirty;
+            dirty = new LinkedHashMap<>();
+        }
+
+        for (Map.Entry<BlockDisplayNode, PendingUpdate> entry : pending.entrySet()) {
+            PendingUpdate update = entry.getValue();
+            entry.getKey().flushUpdate(update.viewers, update.interpolationTicks, update.delayTicks);
+        }
+    }
+
+    private static final class PendingUpdate {
+        final Set<Player> viewers = new LinkedHashSet<>();
+        int interpolationTicks;
+        int delayTicks;
+    }
+}
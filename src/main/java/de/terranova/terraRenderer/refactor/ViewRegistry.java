@@ -0,0 +1,362 @@
+package de.terranova.terraRenderer.refactor;
+
+import it.unimi.dsi.fastutil.doubles.Double2IntRBTreeMap;
+import it.unimi.dsi.fastutil.doubles.Double2IntSortedMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.SectionPos;
+import net.minecraft.util.Mth;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * View-distance culling for persistent scenes.
+ *
+ * - Tracked nodes are indexed by world and chunk section (16³ blocks)
+ * - For every online player the current chunk section is remembered
+ * - When a player crosses a section boundary, only the sections around the new position
+ *   are scanned and nodes are spawned/despawned incrementally, using each node's viewRadius
+ * - Nodes moved by an update are re-indexed and re-checked against the players of their world
+ * - Nodes despawned from outside (DisplayGroup.despawn, purge, ...) stay tracked, but drop out
+ *   of the viewer's visible set, so they are spawned again with the viewer's next refresh
+ *
+ * Main thread only (driven by DisplayTickListener).
+ */
+public final class ViewRegistry {
+
+    /** Default radius (blocks) within which a tracked node is shown. */
+    public static final double DEFAULT_VIEW_RADIUS = 48d;
+
+    /** Extra distance before a visible node is despawned again (avoids flicker at the border). */
+    private static final double DESPAWN_MARGIN = 8d;
+
+    /** World UUID -> section key -> nodes in that section. */
+    private static final Map<UUID, Long2ObjectMap<Set<BlockDisplayNode>>> SECTIONS = new HashMap<>();
+
+    /** Tracked node -> where it is indexed and who may see it. */
+    private static final Map<BlockDisplayNode, Tracked> TRACKED = new IdentityHashMap<>();
+
+    /** Player UUID -> last section + nodes spawned by this registry. */
+    private static final Map<UUID, ViewerState> VIEWERS = new HashMap<>();
+
+    /** View radius -> tracked nodes with it, for radii above DEFAULT_VIEW_RADIUS. */
+    private static final Double2IntSortedMap LARGE_RADII = new Double2IntRBTreeMap();
+
+    /** Largest view radius of any tracked node, bounds the section scan. */
+    private static double maxViewRadius = DEFAULT_VIEW_RADIUS;
+
+    private ViewRegistry() {}
+
+    // ------------------------------------------------------------------------
+    // Registration
+    // ------------------------------------------------------------------------
+
+    /** Track a node for every player in range. */
+    public static void track(BlockDisplayNode node) {
+        track(node, null);
+    }
+
+    /**
+     * Track a node for the given audience only (null = everyone).
+     * It is spawned for audience members in range right away.
+     */
+    public static void track(BlockDisplayNode node, Collection<Player> audience) {
+        if (node == null || node.world() == null || TRACKED.containsKey(node)) return;
+
+        Tracked tracked = new Tracked(node, audienceOf(audience), node.getViewRadius());
+        TRACKED.put(node, tracked);
+        index(tracked);
+        if (tracked.radius > DEFAULT_VIEW_RADIUS) {
+            LARGE_RADII.put(tracked.radius, LARGE_RADII.get(tracked.radius) + 1);
+            maxViewRadius = Math.max(maxViewRadius, tracked.radius);
+        }
+
+        refreshNode(tracked);
+    }
+
+    /** Track all nodes of a group (anchor is applied first so positions are final). */
+    public static void track(DisplayGroup group) {
+        track(group, null);
+    }
+
+    public static void track(DisplayGroup group, Collection<Player> audience) {
+        if (group == null) return;
+        group.applyAnchorIfNeeded();
+        for (BlockDisplayNode node : group.nodes) {
+            track(node, audience);
+        }
+    }
+
+    /** Stop tracking a node and despawn it for everyone the registry showed it to. */
+    public static void untrack(BlockDisplayNode node) {
+        Tracked tracked = TRACKED.remove(node);
+        if (tracked == null) return;
+
+        unindex(tracked);
+        if (tracked.radius > DEFAULT_VIEW_RADIUS) {
+            // The scan shrinks back once the last node with a large radius is gone
+            int count = LARGE_RADII.remove(tracked.radius) - 1;
+            if (count > 0) LARGE_RADII.put(tracked.radius, count);
+            maxViewRadius = LARGE_RADII.isEmpty() ? DEFAULT_VIEW_RADIUS : LARGE_RADII.lastDoubleKey();
+        }
+
+        List<Player> shownTo = new ArrayList<>();
+        for (Map.Entry<UUID, ViewerState> entry : VIEWERS.entrySet()) {
+            if (entry.getValue().visible.remove(node)) {
+                Player p = Bukkit.getPlayer(entry.getKey());
+                if (p != null) shownTo.add(p);
+            }
+        }
+        node.despawn(shownTo);
+    }
+
+    public static void untrack(DisplayGroup group) {
+        if (group == null) return;
+        for (BlockDisplayNode node : group.nodes) {
+            untrack(node);
+        }
+    }
+
+    public static boolean isTracked(BlockDisplayNode node) {
+        return TRACKED.containsKey(node);
+    }
+
+    /** Drop all tracked nodes and viewers without sending packets (registry teardown). */
+    static void clear() {
+        TRACKED.clear();
+        SECTIONS.clear();
+        VIEWERS.clear();
+        LARGE_RADII.clear();
+        maxViewRadius = DEFAULT_VIEW_RADIUS;
+    }
+
+    // ------------------------------------------------------------------------
+    // Per-tick viewer tracking
+    // ------------------------------------------------------------------------
+
+    /**
+     * Checks every online player for a section change and refreshes their visible set.
+     * Called once per tick.
+     */
+    public static void tick() {
+        if (TRACKED.isEmpty()) return;
+
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            Location loc = player.getLocation();
+            World world = loc.getWorld();
+            long section = sectionKey(loc.getX(), loc.getY(), loc.getZ());
+
+            ViewerState state = VIEWERS.computeIfAbsent(player.getUniqueId(), uuid -> new ViewerState());
+            if (world.getUID().equals(state.world) && state.section == section) continue;
+
+            state.world = world.getUID();
+            state.section = section;
+            refreshViewer(player, state, loc);
+        }
+    }
+
+    /**
+     * Forget everything about a player without sending packets
+     * (quit, or world change where the client drops all entities itself).
+     */
+    public static void forget(Player player) {
+        ViewerState state = VIEWERS.remove(player.getUniqueId());
+        if (state == null) return;
+
+        for (BlockDisplayNode node : state.visible) {
+            node.forgetViewer(player.getUniqueId());
+        }
+    }
+
+    /**
+     * Called by nodes that lost a viewer outside of this registry (despawn, forgetViewer):
+     * the node is no longer visible to that player and is spawned again by the next refresh.
+     */
+    static void onViewerDropped(BlockDisplayNode node, UUID viewer) {
+        ViewerState state = VIEWERS.get(viewer);
+        if (state != null) state.visible.remove(node);
+    }
+
+    /** Called by nodes after a flushed update changed their position. */
+    static void onMoved(BlockDisplayNode node) {
+        Tracked tracked = TRACKED.get(node);
+        if (tracked == null) return;
+
+        long section = sectionKey(node.x(), node.y(), node.z());
+        if (section != tracked.section || !node.world().getUID().equals(tracked.world)) {
+            unindex(tracked);
+            index(tracked);
+        }
+        refreshNode(tracked);
+    }
+
+    // ------------------------------------------------------------------------
+    // Visibility
+    // ------------------------------------------------------------------------
+
+    /** Recompute which tracked nodes the player should see, around its (new) section. */
+    private static void refreshViewer(Player player, ViewerState state, Location loc) {
+        Set<BlockDisplayNode> nextVisible = new HashSet<>();
+
+        Long2ObjectMap<Set<BlockDisplayNode>> sections = SECTIONS.get(state.world);
+        if (sections != null && !sections.isEmpty()) {
+            int r = (int) Math.ceil((maxViewRadius + DESPAWN_MARGIN) / 16d);
+            int sx = SectionPos.x(state.section);
+            int sy = SectionPos.y(state.section);
+            int sz = SectionPos.z(state.section);
+
+            for (int dx = -r; dx <= r; dx++) {
+                for (int dy = -r; dy <= r; dy++) {
+                    for (int dz = -r; dz <= r; dz++) {
+                        Set<BlockDisplayNode> nodes = sections.get(SectionPos.asLong(sx + dx, sy + dy, sz + dz));
+                        if (nodes == null) continue;
+
+                        for (BlockDisplayNode node : nodes) {
+                            boolean visible = state.visible.contains(node);
+                            if (shouldSee(TRACKED.get(node), player, loc, visible)) {
+                                nextVisible.add(node);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Player> viewer = List.of(player);
+        List<BlockDisplayNode> leaving = new ArrayList<>();
+        for (BlockDisplayNode node : state.visible) {
+            if (!nextVisible.contains(node)) {
+                leaving.add(node);
+            }
+        }
+        BlockDisplayNode.despawnAll(leaving, viewer);
+        for (BlockDisplayNode node : nextVisible) {
+            if (!state.visible.contains(node)) {
+                node.spawn(viewer);
+            }
+        }
+        state.visible = nextVisible;
+    }
+
+    /** Re-check one node against all players of its world (registration or move). */
+    private static void refreshNode(Tracked tracked) {
+        BlockDisplayNode node = tracked.node;
+        World world = node.world();
+        if (world == null) return;
+
+        List<Player> spawnFor = new ArrayList<>();
+        List<Player> despawnFor = new ArrayList<>();
+
+        for (Player player : world.getPlayers()) {
+            ViewerState state = VIEWERS.computeIfAbsent(player.getUniqueId(), uuid -> new ViewerState());
+            boolean visible = state.visible.contains(node);
+            boolean see = shouldSee(tracked, player, player.getLocation(), visible);
+
+            if (see && !visible) {
+                state.visible.add(node);
+                spawnFor.add(player);
+            } else if (!see && visible) {
+                state.visible.remove(node);
+                despawnFor.add(player);
+            }
+        }
+
+        if (!despawnFor.isEmpty()) node.despawn(despawnFor);
+        if (!spawnFor.isEmpty()) node.spawn(spawnFor);
+    }
+
+    private static boolean shouldSee(Tracked tracked, Player player, Location loc, boolean currentlyVisible) {
+        if (tracked == null) return false;
+        if (tracked.audience != null && !tracked.audience.contains(player.getUniqueId())) return false;
+
+        BlockDisplayNode node = tracked.node;
+        if (node.world() == null || !node.world().equals(loc.getWorld())) return false;
+
+        double radius = node.getViewRadius() + (currentlyVisible ? DESPAWN_MARGIN : 0d);
+        double dx = node.x() - loc.getX();
+        double dy = node.y() - loc.getY();
+        double dz = node.z() - loc.getZ();
+        return dx * dx + dy * dy + dz * dz <= radius * radius;
+    }
+
+    // ------------------------------------------------------------------------
+    // Section index
+    // ------------------------------------------------------------------------
+
+    private static void index(Tracked tracked) {
+        BlockDisplayNode node = tracked.node;
+        tracked.world = node.world().getUID();
+        tracked.section = sectionKey(node.x(), node.y(), node.z());
+
+        SECTIONS.computeIfAbsent(tracked.world, w -> new Long2ObjectOpenHashMap<>())
+                .computeIfAbsent(tracked.section, s -> new HashSet<>())
+                .add(node);
+    }
+
+    private static void unindex(Tracked tracked) {
+        Long2ObjectMap<Set<BlockDisplayNode>> sections = SECTIONS.get(tracked.world);
+        if (sections == null) return;
+
+        Set<BlockDisplayNode> nodes = sections.get(tracked.section);
+        if (nodes == null) return;
+
+        nodes.remove(tracked.node);
+        if (nodes.isEmpty()) sections.remove(tracked.section);
+    }
+
+    private static long sectionKey(double x, double y, double z) {
+        return SectionPos.asLong(
+                SectionPos.blockToSectionCoord(Mth.floor(x)),
+                SectionPos.blockToSectionCoord(Mth.floor(y)),
+                SectionPos.blockToSectionCoord(Mth.floor(z))
+        );
+    }
+
+    private static Set<UUID> audienceOf(Collection<Player> audience) {
+        if (audience == null) return null;
+        Set<UUID> uuids = new HashSet<>();
+        for (Player p : audience) {
+            if (p != null) uuids.add(p.getUniqueId());
+        }
+        return Collections.unmodifiableSet(uuids);
+    }
+
+    // ------------------------------------------------------------------------
+    // State holders
+    // ------------------------------------------------------------------------
+
+    private static final class Tracked {
+        final BlockDisplayNode node;
+        /** Allowed viewers, or null for everyone. */
+        final Set<UUID> audience;
+        /** View radius when tracked (counted in LARGE_RADII). */
+        final double radius;
+        UUID world;
+        long section;
+
+        Tracked(BlockDisplayNode node, Set<UUID> audience, double radius) {
+            this.node = node;
+            this.audience = audience;
+            this.radius = radius;
+        }
+    }
+
+    private static final class ViewerState {
+        UUID world;
+        long section;
+        Set<BlockDisplayNode> visible = new HashSet<>();
+    }
+}